@@ -1,49 +1,382 @@
 package jkml.downloader;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
 
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import jkml.downloader.blob.BlobStore;
+import jkml.downloader.cache.PageCache;
+import jkml.downloader.github.GitHubReleases;
+import jkml.downloader.html.ChecksumFinder;
 import jkml.downloader.html.FileInfo;
+import jkml.downloader.html.Occurrence;
+import jkml.downloader.html.PageScanner;
 import jkml.downloader.html.PageScraper;
+import jkml.downloader.html.PatternBudgetException;
 import jkml.downloader.http.RequestOptions;
 import jkml.downloader.http.Status;
 import jkml.downloader.http.WebClient;
+import jkml.downloader.http.WebClientException;
 import jkml.downloader.profile.Profile;
 import jkml.downloader.profile.Profile.Type;
 import jkml.downloader.profile.ProfileManager;
+import jkml.downloader.state.StateStore;
 import jkml.downloader.util.FileUtils;
+import jkml.downloader.util.LangUtils;
 import jkml.downloader.util.StringUtils;
 import jkml.downloader.util.TimeUtils;
 
 public class Downloader implements Closeable {
 
+	/**
+	 * Outcome of processing a profile
+	 */
+	public enum Result {
+		DOWNLOADED, UP_TO_DATE, SKIPPED, FAILED
+	}
+
+	/**
+	 * MDC key of the name of the profile being processed in concurrent mode
+	 */
+	public static final String MDC_PROFILE = "profile";
+
+	/**
+	 * Maximum number of GitHub page fragments requested ahead of the one being
+	 * examined
+	 */
+	static final int MAX_FRAGMENT_REQUESTS = 4;
+
+	/**
+	 * Maximum number of times the check interval of a profile is doubled while
+	 * its file stays unchanged
+	 */
+	static final int MAX_BACKOFF_DOUBLINGS = 3;
+
+	/**
+	 * Matches found in the text of a page shared by several profiles
+	 */
+	private record PageScan(CharSequence text, CompletableFuture<PageScanner.Matches> matches) {
+	}
+
 	private final Logger logger = LoggerFactory.getLogger(Downloader.class);
 
 	private final WebClient webClient;
 
+	private final DownloaderOptions options;
+
+	private final PageCache pageCache;
+
+	private final StateStore stateStore;
+
+	private final BlobStore blobStore;
+
+	private final PageFetcher pageFetcher;
+
+	/**
+	 * Profiles of the run sharing each page, whose scanner is created when the
+	 * page is first scanned
+	 */
+	private final Map<URI, List<Profile>> sharedPages = new ConcurrentHashMap<>();
+
+	private final Map<URI, PageScanner> pageScanners = new ConcurrentHashMap<>();
+
+	private final Map<URI, PageScan> pageScans = new ConcurrentHashMap<>();
+
+	private final GitHubReleases gitHubReleases;
+
+	/**
+	 * Whether the GitHub API refused a request in the current run, after which
+	 * release pages are used instead for the rest of the run
+	 */
+	private volatile boolean gitHubApiRefused;
+
 	public Downloader() {
-		this(new WebClient());
+		this(new DownloaderOptions());
+	}
+
+	public Downloader(DownloaderOptions options) {
+		this(new WebClient(), options);
 	}
 
 	Downloader(WebClient webClient) {
+		this(webClient, new DownloaderOptions());
+	}
+
+	Downloader(WebClient webClient, DownloaderOptions options) {
 		this.webClient = webClient;
+		this.options = options;
+		this.gitHubReleases = new GitHubReleases(options.getGitHubApiUri(), options.getGitHubToken());
+		this.pageFetcher = new PageFetcher(webClient);
+
+		var dataDirectory = options.getDataDirectory();
+		if (dataDirectory == null) {
+			pageCache = null;
+			stateStore = null;
+			blobStore = null;
+		} else {
+			pageCache = new PageCache(dataDirectory);
+			pageCache.load();
+			stateStore = new StateStore(dataDirectory);
+			stateStore.load();
+			blobStore = options.isBlobStore() ? new BlobStore(dataDirectory) : null;
+			webClient.setContentStore(blobStore);
+		}
 	}
 
 	@Override
 	public void close() {
+		savePageCache();
+		if (stateStore != null) {
+			try {
+				stateStore.close();
+			} catch (IOException e) {
+				logError("state store closing", e);
+			}
+		}
 		webClient.close();
 	}
 
 	public void download(Path path) {
-		for (var profile : loadProfiles(path)) {
-			download(profile);
-			logger.info(StringUtils.EMPTY);
+		download(loadProfiles(path));
+	}
+
+	/**
+	 * Process the profiles as one run. Pages are shared among the profiles of the
+	 * run only.
+	 */
+	public void download(List<Profile> profiles) {
+		pageFetcher.clear();
+		gitHubApiRefused = false;
+		findSharedPages(profiles);
+		if (options.getConcurrency() > 1 || options.isVirtualThreads()) {
+			downloadConcurrently(profiles);
+		} else {
+			for (var profile : profiles) {
+				download(profile);
+				logger.info(StringUtils.EMPTY);
+			}
+		}
+		pageFetcher.clear();
+		sharedPages.clear();
+		pageScanners.clear();
+		pageScans.clear();
+		savePageCache();
+	}
+
+	/**
+	 * Find the pages shared by several profiles, whose patterns are matched in a
+	 * single pass. Patterns are not compiled until the page is scanned.
+	 */
+	private void findSharedPages(List<Profile> profiles) {
+		var pageProfiles = new HashMap<URI, List<Profile>>();
+		for (var profile : profiles) {
+			var pageLink = profile.getPageUrl();
+			if (pageLink != null) {
+				pageProfiles.computeIfAbsent(pageLink, k -> new ArrayList<>()).add(profile);
+			}
+		}
+
+		sharedPages.clear();
+		pageScanners.clear();
+		pageScans.clear();
+		pageProfiles.forEach((pageLink, pageProfileList) -> {
+			if (pageProfileList.size() > 1) {
+				sharedPages.put(pageLink, pageProfileList);
+			}
+		});
+	}
+
+	/**
+	 * Return the scanner of the patterns of all profiles sharing the page,
+	 * creating it on first use, or null if the page is not shared
+	 */
+	private PageScanner getPageScanner(URI pageLink) {
+		var pageProfiles = sharedPages.get(pageLink);
+		if (pageProfiles == null) {
+			return null;
+		}
+		var pageScanner = pageScanners.get(pageLink);
+		if (pageScanner == null) {
+			// Created outside the lock of the map as it compiles the patterns
+			var targets = new ArrayList<PageScanner.Target>();
+			for (var profile : pageProfiles) {
+				targets.addAll(getPageTargets(profile));
+			}
+			var created = new PageScanner(targets);
+			var existing = pageScanners.putIfAbsent(pageLink, created);
+			pageScanner = (existing == null) ? created : existing;
+		}
+		return pageScanner;
+	}
+
+	/**
+	 * Return the targets of the patterns of the profile in its page, or an empty
+	 * list if it has no link pattern or a pattern is not valid. An invalid pattern
+	 * fails the profile when it is processed.
+	 */
+	private static List<PageScanner.Target> getPageTargets(Profile profile) {
+		try {
+			if (profile.getLinkPattern() == null) {
+				return List.of();
+			}
+			var targets = new ArrayList<PageScanner.Target>(2);
+			targets.add(new PageScanner.Target(profile.getLinkPattern(), profile.getLinkOccurrence()));
+			if (profile.getVersionPattern() != null) {
+				targets.add(new PageScanner.Target(profile.getVersionPattern(), Occurrence.FIRST));
+			}
+			return targets;
+		} catch (PatternSyntaxException e) {
+			return List.of();
+		}
+	}
+
+	/**
+	 * Return the matches of the patterns of all profiles sharing the page, or
+	 * null if the page is not shared. The page is scanned once for each text
+	 * retrieved.
+	 */
+	private PageScanner.Matches scanPage(URI pageLink, CharSequence pageHtml) {
+		var pageScanner = getPageScanner(pageLink);
+		if (pageScanner == null) {
+			return null;
+		}
+		// Scan runs outside the lock of the map, and other profiles wait for its result
+		while (true) {
+			var existing = pageScans.get(pageLink);
+			if (existing != null && existing.text() == pageHtml) {
+				return awaitScan(existing);
+			}
+			var scan = new PageScan(pageHtml, new CompletableFuture<>());
+			var added = (existing == null) ? pageScans.putIfAbsent(pageLink, scan) == null
+					: pageScans.replace(pageLink, existing, scan);
+			if (added) {
+				try {
+					var matches = pageScanner.scan(pageHtml);
+					scan.matches().complete(matches);
+					return matches;
+				} catch (RuntimeException e) {
+					pageScans.remove(pageLink, scan);
+					scan.matches().completeExceptionally(e);
+					throw e;
+				}
+			}
+		}
+	}
+
+	private static PageScanner.Matches awaitScan(PageScan scan) {
+		try {
+			return LangUtils.getUninterruptibly(scan.matches());
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Page scan failed", e.getCause());
+		}
+	}
+
+	private void savePageCache() {
+		if (pageCache == null) {
+			return;
+		}
+		try {
+			pageCache.save();
+		} catch (IOException e) {
+			logError("page cache saving", e);
+		}
+	}
+
+	private void downloadConcurrently(List<Profile> profiles) {
+		var concurrency = Math.max(Math.min(options.getConcurrency(), profiles.size()), 1);
+
+		ExecutorService executor;
+		Semaphore semaphore = null;
+		if (options.isVirtualThreads()) {
+			logger.info("Processing {} profiles on virtual threads with concurrency {}", profiles.size(), concurrency);
+			executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("profile-", 1).factory());
+			if (concurrency < profiles.size()) {
+				semaphore = new Semaphore(concurrency);
+			}
+		} else {
+			logger.info("Processing {} profiles with concurrency {}", profiles.size(), concurrency);
+			executor = Executors.newFixedThreadPool(concurrency, new DefaultThreadFactory("profile"));
+		}
+
+		try {
+			var futures = new ArrayList<Future<Result>>(profiles.size());
+			for (var profile : profiles) {
+				var permits = semaphore;
+				futures.add(executor.submit(() -> downloadInContext(profile, permits)));
+			}
+
+			var names = new EnumMap<Result, List<String>>(Result.class);
+			for (var i = 0; i < profiles.size(); ++i) {
+				var result = getResult(futures.get(i));
+				names.computeIfAbsent(result, k -> new ArrayList<>()).add(profiles.get(i).getName());
+			}
+			logSummary(names);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private Result downloadInContext(Profile profile, Semaphore semaphore) {
+		if (semaphore != null) {
+			semaphore.acquireUninterruptibly();
+		}
+		MDC.put(MDC_PROFILE, profile.getName());
+		try {
+			return download(profile);
+		} catch (RuntimeException e) {
+			logError("profile processing", e);
+			return Result.FAILED;
+		} finally {
+			MDC.remove(MDC_PROFILE);
+			if (semaphore != null) {
+				semaphore.release();
+			}
+		}
+	}
+
+	private static Result getResult(Future<Result> future) {
+		try {
+			return LangUtils.getUninterruptibly(future);
+		} catch (ExecutionException e) {
+			// Not expected as all exceptions are handled in the task
+			return Result.FAILED;
+		}
+	}
+
+	private void logSummary(EnumMap<Result, List<String>> names) {
+		logger.info(StringUtils.EMPTY);
+		for (var entry : names.entrySet()) {
+			logger.atInfo().log("{}: {}", entry.getKey(), entry.getValue().size());
+		}
+		var failed = names.get(Result.FAILED);
+		if (failed != null) {
+			logger.atError().log("Failed profiles: {}", String.join(", ", failed));
 		}
 	}
 
@@ -71,9 +404,28 @@ public class Downloader implements Closeable {
 		return valid;
 	}
 
-	void download(Profile profile) {
+	Result download(Profile profile) {
+		if (options.isSkipRecentlyChecked() && !isCheckDue(profile)) {
+			return Result.SKIPPED;
+		}
+		Result result;
+		try {
+			result = downloadFile(profile);
+		} catch (PatternSyntaxException e) {
+			// Patterns are compiled on first use rather than when validated
+			logger.atError().log("Invalid regular expression: {}", e.getMessage().replace(System.lineSeparator(), " "));
+			result = Result.FAILED;
+		}
+		if (result == Result.FAILED) {
+			recordFailure(profile);
+		}
+		return result;
+	}
+
+	private Result downloadFile(Profile profile) {
 		URI fileLink;
 		String fileName;
+		String version = null;
 
 		logger.info("Looking for new version of {}", profile.getName());
 
@@ -84,7 +436,7 @@ public class Downloader implements Closeable {
 			if (type == Profile.Type.REDIRECT) {
 				fileLink = getLink(fileLink, profile.getRequestOptions());
 				if (fileLink == null) {
-					return;
+					return Result.FAILED;
 				}
 				fileLink = profile.getFileUrl().resolve(fileLink);
 			}
@@ -93,49 +445,257 @@ public class Downloader implements Closeable {
 			// Find file link from page
 			var fileInfo = findFileInfo(profile);
 			if (fileInfo == null) {
-				return;
+				return Result.FAILED;
 			}
 			fileLink = fileInfo.uri();
 			fileName = FileUtils.getFileName(fileLink);
 
 			// Add version if it is not already part of the file name
-			var version = fileInfo.version();
+			version = fileInfo.version();
 			if (!StringUtils.isNullOrBlank(version) && !fileName.contains(version)) {
 				fileName = FileUtils.updateFileName(fileName, version);
 			}
 		} else {
 			logger.error("Unsupported profile type: {}", type.name());
-			return;
+			return Result.FAILED;
 		}
 
-		getFile(fileLink, profile.getRequestOptions(), profile.getOutputDirectory().resolve(fileName),
-				profile.isSkipIfFileExists());
+		return getFile(profile, fileLink, version, profile.getOutputDirectory().resolve(fileName));
 	}
 
-	private void getFile(URI uri, RequestOptions options, Path path, boolean skipIfFileExists) {
-		if (skipIfFileExists && Files.exists(path)) {
+	private Result getFile(Profile profile, URI uri, String version, Path path) {
+		if (profile.isSkipIfFileExists() && Files.exists(path)) {
 			logger.info("Local file exists");
-			return;
+			return Result.SKIPPED;
+		}
+
+		var options = Objects.requireNonNullElseGet(profile.getRequestOptions(), RequestOptions::new);
+		var state = getState(profile, path);
+		if (state != null) {
+			applyState(state, options, path);
 		}
+
 		try {
+			options.setChecksum(findChecksum(profile, FileUtils.getFileName(uri)));
+			var storedResult = getStoredFile(profile, uri, version, path, options.getChecksum(), state);
+			if (storedResult != null) {
+				return storedResult;
+			}
 			var result = webClient.saveToFile(uri, options, path);
 			if (result.status() == Status.OK) {
-				logger.atInfo().log("Downloaded remote file last modified at {}", TimeUtils.format(result.lastModified()));
+				addToBlobStore(path, result.sha256());
+				putState(new StateStore.Entry(profile.getName(), uri, version, path, result.etag(), result.lastModified(),
+						getSize(path), result.sha256(), Instant.now(), 0, 0));
+				if (result.lastModified() == null) {
+					logger.info("Downloaded remote file with entity tag {}", result.etag());
+				} else {
+					logger.atInfo().log("Downloaded remote file last modified at {}", TimeUtils.format(result.lastModified()));
+				}
 				logger.info("URL:  {}", uri);
 				logger.info("Path: {}", path);
-			} else {
-				logger.info("Local file up to date");
+				return Result.DOWNLOADED;
 			}
+			logger.info("Local file up to date");
+			// Validators sent are confirmed to be those of the remote file
+			putState(new StateStore.Entry(profile.getName(), uri, version, path, options.getIfNoneMatch(),
+					options.getIfModifiedSince(), getSize(path), (state == null) ? null : state.sha256(), Instant.now(), 0,
+					(state == null) ? 1 : state.unchangedCount() + 1));
+			return Result.UP_TO_DATE;
 		} catch (Exception e) {
 			logError("file download", e);
+			return Result.FAILED;
 		}
 	}
 
-	private String getText(URI uri, RequestOptions options) {
+	/**
+	 * Return the result of getting the file from the blob store without a request
+	 * when its expected checksum is known and its content is stored, or null
+	 * otherwise
+	 */
+	private Result getStoredFile(Profile profile, URI uri, String version, Path path, String checksum,
+			StateStore.Entry state) throws IOException {
+		if (blobStore == null || checksum == null) {
+			return null;
+		}
+		var sha256 = checksum.toLowerCase(Locale.ROOT);
+		if (blobStore.isLinked(path, sha256)) {
+			logger.info("Local file up to date with stored content");
+			putState(new StateStore.Entry(profile.getName(), uri, version, path, (state == null) ? null : state.etag(),
+					(state == null) ? null : state.lastModified(), getSize(path), sha256, Instant.now(), 0,
+					(state == null) ? 1 : state.unchangedCount() + 1));
+			return Result.UP_TO_DATE;
+		}
+		if (!blobStore.linkTo(sha256, path)) {
+			return null;
+		}
+		putState(new StateStore.Entry(profile.getName(), uri, version, path, null, null, getSize(path), sha256,
+				Instant.now(), 0, 0));
+		logger.info("Copied file from stored content with SHA-256 checksum {}", sha256);
+		logger.info("URL:  {}", uri);
+		logger.info("Path: {}", path);
+		return Result.DOWNLOADED;
+	}
+
+	private void addToBlobStore(Path path, String sha256) {
+		if (blobStore == null || sha256 == null) {
+			return;
+		}
 		try {
-			return webClient.getContent(uri, options);
-		} catch (Exception e) {
-			logError("page retrieval", e);
+			blobStore.add(path, sha256);
+		} catch (IOException e) {
+			logger.atWarn().log("Failed to add file to blob store: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Return the expected SHA-256 hash of the file of the profile, or null if the
+	 * profile does not declare one. A checksum pattern without a checksum URL is
+	 * searched for in the page of the profile.
+	 */
+	private String findChecksum(Profile profile, String fileName) throws WebClientException {
+		if (profile.getChecksum() != null) {
+			return profile.getChecksum();
+		}
+		var link = profile.getChecksumUrl();
+		if (link == null) {
+			if (profile.getChecksumPattern() == null) {
+				return null;
+			}
+			link = profile.getPageUrl();
+		}
+
+		var options = Objects.requireNonNullElseGet(profile.getRequestOptions(), RequestOptions::new);
+		var text = pageFetcher.fetch(link, options, null).text();
+		if (text == null) {
+			throw new WebClientException("Checksum content not available");
+		}
+		var checksum = ChecksumFinder.find(text, profile.getChecksumPattern(), fileName);
+		if (checksum == null) {
+			throw new WebClientException("Checksum not found: " + link);
+		}
+		logger.info("Expected SHA-256 checksum: {}", checksum);
+		return checksum;
+	}
+
+	/**
+	 * Return the check interval widened by backoff for a file found up to date
+	 * in a number of consecutive checks
+	 */
+	static Duration getCheckInterval(Duration checkInterval, int unchangedCount) {
+		return checkInterval.multipliedBy(1L << Math.clamp(unchangedCount, 0, MAX_BACKOFF_DOUBLINGS));
+	}
+
+	/**
+	 * Return the time to wait after a check of the profile before checking it
+	 * again. The check interval of the profile is widened by backoff while its
+	 * file is unchanged, and the default interval is used if it has none.
+	 */
+	Duration getCheckInterval(Profile profile, Duration defaultInterval) {
+		var checkInterval = profile.getCheckInterval();
+		if (checkInterval == null) {
+			return defaultInterval;
+		}
+		var state = (stateStore == null) ? null : stateStore.get(profile.getName());
+		if (state == null || state.failureCount() > 0) {
+			return checkInterval;
+		}
+		return getCheckInterval(checkInterval, state.unchangedCount());
+	}
+
+	/**
+	 * Return the time the profile was last checked, or null if not known
+	 */
+	Instant getLastCheck(Profile profile) {
+		var state = (stateStore == null) ? null : stateStore.get(profile.getName());
+		return (state == null) ? null : state.lastCheck();
+	}
+
+	/**
+	 * Whether the profile is due to be checked because it has no check interval,
+	 * failed last time or was last checked longer ago than its interval
+	 */
+	private boolean isCheckDue(Profile profile) {
+		var checkInterval = profile.getCheckInterval();
+		if (checkInterval == null || stateStore == null) {
+			return true;
+		}
+		var state = stateStore.get(profile.getName());
+		if (state == null || state.lastCheck() == null || state.failureCount() > 0) {
+			return true;
+		}
+		var nextCheck = state.lastCheck().plus(getCheckInterval(checkInterval, state.unchangedCount()));
+		if (Instant.now().isBefore(nextCheck)) {
+			logger.atInfo().log("Skipping profile checked at {} until {}", TimeUtils.format(state.lastCheck()),
+					TimeUtils.format(nextCheck));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the saved state of the profile if it applies to the local file
+	 */
+	private StateStore.Entry getState(Profile profile, Path path) {
+		if (stateStore == null) {
+			return null;
+		}
+		var state = stateStore.get(profile.getName());
+		if (state == null || !path.equals(state.path()) || Files.notExists(path)) {
+			return null;
+		}
+		return state;
+	}
+
+	/**
+	 * Use the validators saved with the local file rather than its modified time,
+	 * which may have been changed by other programs. A local file whose size has
+	 * changed since it was saved is downloaded again.
+	 */
+	private void applyState(StateStore.Entry state, RequestOptions options, Path path) {
+		var size = getSize(path);
+		if (size != state.size()) {
+			logger.info("Local file size {} differs from size {} when saved", size, state.size());
+			options.setUnconditional(true);
+		} else if (state.etag() != null || state.lastModified() != null) {
+			options.setIfNoneMatch(state.etag());
+			options.setIfModifiedSince(state.lastModified());
+		}
+	}
+
+	private void recordFailure(Profile profile) {
+		if (stateStore == null) {
+			return;
+		}
+		var state = stateStore.get(profile.getName());
+		var now = Instant.now();
+		putState((state == null) ? new StateStore.Entry(profile.getName(), null, null, null, null, null, -1, null, now, 1, 0)
+				: state.failed(now));
+	}
+
+	private void putState(StateStore.Entry state) {
+		if (stateStore == null) {
+			return;
+		}
+		try {
+			stateStore.put(state);
+		} catch (IOException e) {
+			logError("state saving", e);
+		}
+	}
+
+	private static long getSize(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private String getText(CompletableFuture<String> future) {
+		try {
+			return LangUtils.getUninterruptibly(future);
+		} catch (ExecutionException e) {
+			logError("page retrieval", e.getCause());
 			return null;
 		}
 	}
@@ -149,7 +709,7 @@ public class Downloader implements Closeable {
 		}
 	}
 
-	private void logError(String operation, Exception exception) {
+	private void logError(String operation, Throwable exception) {
 		logger.atError().log("Error occurred during {}: {}", operation, exception.toString());
 	}
 
@@ -158,16 +718,104 @@ public class Downloader implements Closeable {
 		return "github.com".equals(host) || host.endsWith(".github.com");
 	}
 
+	private static RequestOptions getRequestOptions(Profile profile) {
+		return Objects.requireNonNullElseGet(profile.getRequestOptions(), RequestOptions::new);
+	}
+
+	private static String getScrapeKey(Profile profile) {
+		return PageCache.getScrapeKey(String.valueOf(profile.getLinkPattern()), String.valueOf(profile.getLinkOccurrence()),
+				String.valueOf(profile.getVersionPattern()));
+	}
+
 	private FileInfo findFileInfo(Profile profile) {
 		var pageLink = profile.getPageUrl();
 
-		// Download page containing file info
-		var pageHtml = getText(pageLink, profile.getRequestOptions());
-		if (pageHtml == null) {
+		// Use GitHub API if possible as it is lighter and more stable than release pages
+		var apiLink = gitHubApiRefused ? null : gitHubReleases.getApiUri(pageLink);
+		if (apiLink != null) {
+			var options = getRequestOptions(profile);
+			gitHubReleases.setRequestHeaders(options);
+			try {
+				var fileInfo = fetchFileInfo(profile, apiLink, options, null,
+						text -> findFileInfoInGitHubReleases(profile, text));
+				if (fileInfo != null) {
+					return fileInfo;
+				}
+			} catch (Exception e) {
+				logger.atWarn().log("Error occurred during GitHub API retrieval: {}", e.toString());
+				// Requests refused for the rate limit would only double the requests of later profiles
+				if (e instanceof WebClientException webClientException
+						&& GitHubReleases.isRateLimited(webClientException.getStatusCode())) {
+					gitHubApiRefused = true;
+					logger.warn("Using release pages instead of GitHub API for the rest of the run");
+				}
+			}
+			logger.info("Looking for file link in release page instead");
+		}
+
+		// Stop downloading page once the part received contains file info
+		var stopCondition = PageScraper.createStopCondition(profile.getLinkPattern(), profile.getLinkOccurrence(),
+				profile.getVersionPattern());
+		try {
+			return fetchFileInfo(profile, pageLink, getRequestOptions(profile), stopCondition,
+					text -> findFileInfo(profile, text));
+		} catch (PatternBudgetException e) {
+			logError("page scraping", e);
 			return null;
+		} catch (Exception e) {
+			logError("page retrieval", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Download content and extract file info from it. With a page cache, the
+	 * content is only downloaded if it has changed since file info was last
+	 * extracted from it. Profiles sharing a link within a run share the download.
+	 */
+	private FileInfo fetchFileInfo(Profile profile, URI link, RequestOptions options,
+			Predicate<CharSequence> stopCondition, Function<CharSequence, FileInfo> scraper) throws WebClientException {
+		if (pageCache == null) {
+			var page = pageFetcher.fetch(link, options, stopCondition);
+			return scraper.apply(page.text());
 		}
 
-		var pageScraper = new PageScraper(pageLink, pageHtml);
+		var scrapeKey = getScrapeKey(profile);
+		var entry = pageCache.get(link);
+		if (entry != null && entry.fileInfos().containsKey(scrapeKey)) {
+			options.setIfNoneMatch(entry.etag());
+			options.setIfModifiedSince(entry.lastModified());
+		}
+
+		var page = pageFetcher.fetch(link, options, stopCondition);
+		if (page.status() == Status.NOT_MODIFIED && entry != null) {
+			var fileInfo = entry.fileInfos().get(scrapeKey);
+			if (fileInfo != null) {
+				logger.info("Page not modified, using file link found previously: {}", fileInfo.uri());
+				return fileInfo;
+			}
+		}
+		if (page.text() == null) {
+			throw new WebClientException("Page content not available");
+		}
+
+		pageCache.update(link, page.etag(), page.lastModified());
+		var fileInfo = scraper.apply(page.text());
+		if (fileInfo != null) {
+			pageCache.putFileInfo(link, scrapeKey, fileInfo);
+		}
+		return fileInfo;
+	}
+
+	private FileInfo findFileInfoInGitHubReleases(Profile profile, CharSequence json) {
+		var pageScraper = new PageScraper(profile.getPageUrl(), GitHubReleases.toHtml(json));
+		return pageScraper.extractFileInfo(profile.getLinkPattern(), profile.getLinkOccurrence(),
+				profile.getVersionPattern());
+	}
+
+	private FileInfo findFileInfo(Profile profile, CharSequence pageHtml) {
+		var pageLink = profile.getPageUrl();
+		var pageScraper = new PageScraper(pageLink, pageHtml, scanPage(pageLink, pageHtml));
 		var fileInfo = pageScraper.extractFileInfo(profile.getLinkPattern(), profile.getLinkOccurrence(),
 				profile.getVersionPattern());
 		if (fileInfo == null) {
@@ -187,19 +835,31 @@ public class Downloader implements Closeable {
 			return null;
 		}
 
-		for (var link : fragmentLinks) {
-			var fragmentHtml = getText(link, profile.getRequestOptions());
-			if (fragmentHtml == null) {
-				return null;
-			}
+		// Request fragments ahead concurrently but examine them in page order
+		var futures = new ArrayList<CompletableFuture<String>>(fragmentLinks.size());
+		try {
+			for (var i = 0; i < fragmentLinks.size(); ++i) {
+				var end = Math.min(i + MAX_FRAGMENT_REQUESTS, fragmentLinks.size());
+				while (futures.size() < end) {
+					futures.add(webClient.getContentAsync(fragmentLinks.get(futures.size()), profile.getRequestOptions()));
+				}
 
-			// Use parent base URL for link resolution
-			var fragmentScraper = new PageScraper(profile.getPageUrl(), fragmentHtml);
-			var fileInfo = fragmentScraper.extractFileInfo(profile.getLinkPattern(), profile.getLinkOccurrence(),
-					profile.getVersionPattern());
-			if (fileInfo != null) {
-				return fileInfo;
+				var fragmentHtml = getText(futures.get(i));
+				if (fragmentHtml == null) {
+					return null;
+				}
+
+				// Use parent base URL for link resolution
+				var fragmentScraper = new PageScraper(profile.getPageUrl(), fragmentHtml);
+				var fileInfo = fragmentScraper.extractFileInfo(profile.getLinkPattern(), profile.getLinkOccurrence(),
+						profile.getVersionPattern());
+				if (fileInfo != null) {
+					return fileInfo;
+				}
 			}
+		} finally {
+			// Abandon requests for fragments after the one examined last
+			futures.forEach(future -> future.cancel(false));
 		}
 
 		logger.error("File link not found in any page fragment");
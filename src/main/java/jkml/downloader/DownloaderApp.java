@@ -1,17 +1,115 @@
 package jkml.downloader;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import jkml.downloader.util.StringUtils;
 
 public class DownloaderApp {
 
+	private static final String CONCURRENCY_OPTION = "--concurrency=";
+
+	private static final String VIRTUAL_THREADS_OPTION = "--virtual-threads";
+
+	private static final String DATA_DIR_OPTION = "--data-dir=";
+
+	private static final String SKIP_RECENT_OPTION = "--skip-recent";
+
+	private static final String DAEMON_OPTION = "--daemon=";
+
+	private static final String BLOB_STORE_OPTION = "--blob-store";
+
+	/**
+	 * Environment variable holding the access token for GitHub REST API requests
+	 */
+	private static final String GITHUB_TOKEN_VARIABLE = "GITHUB_TOKEN";
+
+	static DownloaderOptions parseOptions(String... args) {
+		var options = new DownloaderOptions();
+		var concurrencySet = false;
+		for (var i = 0; i < args.length - 1; ++i) {
+			var arg = args[i];
+			if (arg.startsWith(CONCURRENCY_OPTION)) {
+				options.setConcurrency(Integer.parseInt(arg.substring(CONCURRENCY_OPTION.length())));
+				concurrencySet = true;
+			} else if (arg.equals(VIRTUAL_THREADS_OPTION)) {
+				options.setVirtualThreads(true);
+			} else if (arg.startsWith(DATA_DIR_OPTION)) {
+				options.setDataDirectory(Path.of(arg.substring(DATA_DIR_OPTION.length())));
+			} else if (arg.equals(SKIP_RECENT_OPTION)) {
+				options.setSkipRecentlyChecked(true);
+			} else if (arg.startsWith(DAEMON_OPTION)) {
+				options.setDaemonInterval(parseDuration(arg.substring(DAEMON_OPTION.length())));
+			} else if (arg.equals(BLOB_STORE_OPTION)) {
+				options.setBlobStore(true);
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		if (options.isSkipRecentlyChecked() && options.getDataDirectory() == null) {
+			throw new IllegalArgumentException("Option %s requires option %s".formatted(SKIP_RECENT_OPTION, DATA_DIR_OPTION));
+		}
+		if (options.isBlobStore() && options.getDataDirectory() == null) {
+			throw new IllegalArgumentException("Option %s requires option %s".formatted(BLOB_STORE_OPTION, DATA_DIR_OPTION));
+		}
+		// Virtual threads are cheap so there is no limit unless one is given
+		if (options.isVirtualThreads() && !concurrencySet) {
+			options.setConcurrency(Integer.MAX_VALUE);
+		}
+		return options;
+	}
+
+	private static Duration parseDuration(String text) {
+		try {
+			return Duration.parse(text);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid duration: " + text, e);
+		}
+	}
+
 	public static void main(String... args) {
-		if (args.length != 1) {
-			System.out.println("Usage: %s <file>".formatted(DownloaderApp.class.getName()));
+		DownloaderOptions options;
+		try {
+			if (args.length < 1) {
+				throw new IllegalArgumentException("Missing file argument");
+			}
+			options = parseOptions(args);
+			var gitHubToken = System.getenv(GITHUB_TOKEN_VARIABLE);
+			if (!StringUtils.isNullOrBlank(gitHubToken)) {
+				options.setGitHubToken(gitHubToken.strip());
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println("Usage: %s [%s<count>] [%s] [%s<dir>] [%s] [%s<interval>] [%s] <file>".formatted(
+					DownloaderApp.class.getName(), CONCURRENCY_OPTION, VIRTUAL_THREADS_OPTION, DATA_DIR_OPTION,
+					SKIP_RECENT_OPTION, DAEMON_OPTION, BLOB_STORE_OPTION));
 			return;
 		}
-		try (var downloader = new Downloader()) {
-			downloader.download(Path.of(args[0]));
+		var path = Path.of(args[args.length - 1]);
+		try (var downloader = new Downloader(options)) {
+			if (options.getDaemonInterval() == null) {
+				downloader.download(path);
+			} else {
+				runDaemon(downloader, options.getDaemonInterval(), path);
+			}
 		}
 	}
 
+	private static void runDaemon(Downloader downloader, Duration interval, Path path) {
+		var daemon = new DownloaderDaemon(downloader, interval);
+		var mainThread = Thread.currentThread();
+		var shutdownHook = new Thread(() -> {
+			daemon.stop();
+			// Let the downloader be closed before the JVM exits
+			try {
+				mainThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		daemon.run(path);
+	}
+
 }
@@ -0,0 +1,253 @@
+package jkml.downloader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jkml.downloader.profile.Profile;
+import jkml.downloader.profile.ProfileManager;
+import jkml.downloader.util.TimeUtils;
+
+/**
+ * Keeps a downloader alive and checks each profile again once its check
+ * interval has passed, so that connections and TLS sessions are reused across
+ * checks. Profiles falling due within a short window of each other are
+ * processed as one run. The
+ * profiles file is watched, and only the profiles added or changed in it are
+ * scheduled again.
+ */
+final class DownloaderDaemon {
+
+	/**
+	 * Profile waiting in the queue until it is due
+	 */
+	record ScheduledProfile(Profile profile, Instant dueTime) implements Delayed {
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(Duration.between(Instant.now(), dueTime));
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return (other instanceof ScheduledProfile scheduled) ? dueTime.compareTo(scheduled.dueTime)
+					: Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+
+	}
+
+	/**
+	 * Time after the first profile of a run falls due during which other profiles
+	 * falling due, such as those still being loaded, join the run
+	 */
+	static final long COALESCE_MILLIS = 500;
+
+	private final Logger logger = LoggerFactory.getLogger(DownloaderDaemon.class);
+
+	private final Downloader downloader;
+
+	private final Duration defaultInterval;
+
+	private final DelayQueue<ScheduledProfile> queue = new DelayQueue<>();
+
+	private final ProfileManager profileManager = new ProfileManager();
+
+	/**
+	 * Current profiles by name. Queue entries of other profile objects are stale.
+	 */
+	private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+
+	private volatile boolean stopped;
+
+	/**
+	 * @param downloader      downloader used for all runs
+	 * @param defaultInterval time between checks of profiles without a check
+	 *                        interval
+	 */
+	public DownloaderDaemon(Downloader downloader, Duration defaultInterval) {
+		if (defaultInterval.isNegative() || defaultInterval.isZero()) {
+			throw new IllegalArgumentException("Interval must be positive: " + defaultInterval);
+		}
+		this.downloader = downloader;
+		this.defaultInterval = defaultInterval;
+	}
+
+	/**
+	 * Schedule the profile at the end of its check interval since its last check,
+	 * or now if it has not been checked before
+	 */
+	void schedule(Profile profile) {
+		profiles.put(profile.getName(), profile);
+		var lastCheck = downloader.getLastCheck(profile);
+		var dueTime = (lastCheck == null) ? Instant.now()
+				: lastCheck.plus(downloader.getCheckInterval(profile, defaultInterval));
+		queue.add(new ScheduledProfile(profile, dueTime));
+	}
+
+	/**
+	 * Load the profiles and process them on schedule until stopped, applying the
+	 * changes made to the profiles file meanwhile. Each valid profile is scheduled
+	 * as soon as it is read, so checks start before the whole file is loaded.
+	 */
+	public void run(Path path) {
+		var watcher = Thread.ofPlatform().name("profile-watcher").daemon().start(() -> loadAndWatch(path));
+		try {
+			run();
+		} finally {
+			watcher.interrupt();
+		}
+	}
+
+	private void loadAndWatch(Path path) {
+		try {
+			profileManager.load(path, this::add);
+		} catch (Exception e) {
+			logger.error("Failed to load profiles", e);
+			stop();
+			return;
+		}
+		if (profiles.isEmpty()) {
+			logger.error("No profile to schedule");
+			stop();
+			return;
+		}
+
+		try {
+			profileManager.watch(path, this::update);
+		} catch (IOException e) {
+			logger.error("Failed to watch profiles file", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Schedule the added and changed profiles that are valid and unschedule the
+	 * removed ones. Changed profiles are due at once.
+	 */
+	synchronized void update(ProfileManager.Changes changes) {
+		for (var name : changes.removed()) {
+			if (profiles.remove(name) != null) {
+				logger.info("Unscheduled removed profile: {}", name);
+			}
+		}
+		for (var profile : changes.added()) {
+			if (add(profile)) {
+				logger.info("Scheduled added profile: {}", profile.getName());
+			}
+		}
+		for (var profile : changes.changed()) {
+			if (isValid(profile)) {
+				profiles.put(profile.getName(), profile);
+				queue.add(new ScheduledProfile(profile, Instant.now()));
+				logger.info("Rescheduled changed profile: {}", profile.getName());
+			}
+		}
+		// Entry without profile wakes up the daemon to stop
+		queue.removeIf(scheduled -> scheduled.profile() != null && !isCurrent(scheduled.profile()));
+	}
+
+	/**
+	 * Schedule the profile if it is valid
+	 */
+	private synchronized boolean add(Profile profile) {
+		if (!isValid(profile)) {
+			return false;
+		}
+		schedule(profile);
+		return true;
+	}
+
+	private boolean isValid(Profile profile) {
+		var errors = ProfileManager.validate(profile);
+		if (errors.isEmpty()) {
+			return true;
+		}
+		// Invalid profile is no longer checked until corrected
+		if (profile.getName() != null) {
+			profiles.remove(profile.getName());
+		}
+		logger.atError().log("Invalid profile {}: {}", profile.getName(), String.join("; ", errors));
+		return false;
+	}
+
+	private boolean isCurrent(Profile profile) {
+		return profile != null && profiles.get(profile.getName()) == profile;
+	}
+
+	void run() {
+		try {
+			while (!stopped) {
+				var batch = new ArrayList<ScheduledProfile>();
+				batch.add(queue.take());
+				collect(batch);
+				if (!stopped) {
+					runBatch(batch);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.info("Daemon stopped");
+	}
+
+	/**
+	 * Add the profiles falling due within the coalescing window to the batch, so
+	 * that they share page retrievals and run concurrently rather than in runs of
+	 * their own
+	 */
+	private void collect(List<ScheduledProfile> batch) throws InterruptedException {
+		var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COALESCE_MILLIS);
+		while (!stopped) {
+			var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			if (next == null) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	private void runBatch(List<ScheduledProfile> batch) {
+		var batchProfiles = batch.stream().map(ScheduledProfile::profile).filter(this::isCurrent).distinct().toList();
+		if (batchProfiles.isEmpty()) {
+			return;
+		}
+		downloader.download(batchProfiles);
+		reschedule(batchProfiles);
+		var next = queue.peek();
+		if (next != null) {
+			logger.atInfo().log("Next check at {}", TimeUtils.format(next.dueTime()));
+		}
+	}
+
+	private synchronized void reschedule(List<Profile> batchProfiles) {
+		var now = Instant.now();
+		for (var profile : batchProfiles) {
+			// Profile changed or removed during the run is not rescheduled
+			if (isCurrent(profile)) {
+				queue.add(new ScheduledProfile(profile, now.plus(downloader.getCheckInterval(profile, defaultInterval))));
+			}
+		}
+	}
+
+	/**
+	 * Stop after the current run, or at once if waiting for the next one
+	 */
+	public void stop() {
+		stopped = true;
+		// Wake up the daemon with an entry due at once
+		queue.add(new ScheduledProfile(null, Instant.EPOCH));
+	}
+
+}
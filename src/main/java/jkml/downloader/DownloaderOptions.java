@@ -0,0 +1,126 @@
+package jkml.downloader;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import jkml.downloader.github.GitHubReleases;
+
+public class DownloaderOptions {
+
+	private int concurrency = 1;
+
+	private boolean virtualThreads;
+
+	private Path dataDirectory;
+
+	private boolean skipRecentlyChecked;
+
+	private Duration daemonInterval;
+
+	private boolean blobStore;
+
+	private URI gitHubApiUri = GitHubReleases.DEFAULT_API_URI;
+
+	private String gitHubToken;
+
+	/**
+	 * Maximum number of profiles processed at the same time. A value of 1 means
+	 * profiles are processed sequentially.
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Whether each profile is processed on its own virtual thread
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Directory where state is kept between runs, or null if no state is kept
+	 */
+	public Path getDataDirectory() {
+		return dataDirectory;
+	}
+
+	public void setDataDirectory(Path dataDirectory) {
+		this.dataDirectory = dataDirectory;
+	}
+
+	/**
+	 * Whether profiles checked successfully within their check interval are
+	 * skipped. This requires a data directory where the time of checks is kept.
+	 */
+	public boolean isSkipRecentlyChecked() {
+		return skipRecentlyChecked;
+	}
+
+	public void setSkipRecentlyChecked(boolean skipRecentlyChecked) {
+		this.skipRecentlyChecked = skipRecentlyChecked;
+	}
+
+	/**
+	 * Time between checks of profiles without a check interval when running as a
+	 * daemon, or null to process the profiles once
+	 */
+	public Duration getDaemonInterval() {
+		return daemonInterval;
+	}
+
+	public void setDaemonInterval(Duration daemonInterval) {
+		if (daemonInterval != null && (daemonInterval.isNegative() || daemonInterval.isZero())) {
+			throw new IllegalArgumentException("Daemon interval must be positive: " + daemonInterval);
+		}
+		this.daemonInterval = daemonInterval;
+	}
+
+	/**
+	 * Whether downloaded files are kept in a content-addressed store in the data
+	 * directory, so that content already downloaded is not transferred again
+	 */
+	public boolean isBlobStore() {
+		return blobStore;
+	}
+
+	public void setBlobStore(boolean blobStore) {
+		this.blobStore = blobStore;
+	}
+
+	/**
+	 * Base URI of the GitHub REST API used to find files of GITHUB profiles
+	 */
+	public URI getGitHubApiUri() {
+		return gitHubApiUri;
+	}
+
+	public void setGitHubApiUri(URI gitHubApiUri) {
+		this.gitHubApiUri = gitHubApiUri;
+	}
+
+	/**
+	 * Access token sent with GitHub REST API requests to raise their rate limit,
+	 * or null to send unauthenticated requests
+	 */
+	public String getGitHubToken() {
+		return gitHubToken;
+	}
+
+	public void setGitHubToken(String gitHubToken) {
+		this.gitHubToken = gitHubToken;
+	}
+
+}
@@ -0,0 +1,115 @@
+package jkml.downloader;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jkml.downloader.http.Referer;
+import jkml.downloader.http.RequestOptions;
+import jkml.downloader.http.TextResult;
+import jkml.downloader.http.UserAgent;
+import jkml.downloader.http.WebClient;
+import jkml.downloader.http.WebClientException;
+import jkml.downloader.util.LangUtils;
+
+/**
+ * Shares page retrievals among the profiles of a run. Profiles requesting the
+ * same page with equivalent request options get the result of a single
+ * retrieval, whether it is still in progress or already done. Failed
+ * retrievals are not kept so a later profile may try again.
+ */
+class PageFetcher {
+
+	/**
+	 * Parts of a request that can make the response differ
+	 */
+	record Key(URI uri, UserAgent userAgent, Referer referer, String accept, String authorization, String ifNoneMatch,
+			Instant ifModifiedSince) {
+
+		static Key of(URI uri, RequestOptions options) {
+			return new Key(uri, options.getUserAgent(), options.getReferer(), options.getAccept(),
+					options.getAuthorization(), options.getIfNoneMatch(), options.getIfModifiedSince());
+		}
+
+	}
+
+	private record Fetch(CompletableFuture<TextResult> future) {
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(PageFetcher.class);
+
+	private final WebClient webClient;
+
+	private final Map<Key, Fetch> fetches = new ConcurrentHashMap<>();
+
+	PageFetcher(WebClient webClient) {
+		this.webClient = webClient;
+	}
+
+	/**
+	 * Forget the retrievals of the run
+	 */
+	void clear() {
+		fetches.clear();
+	}
+
+	/**
+	 * Retrieve a page or share the retrieval of the same page by another
+	 * profile. A page retrieved partially for another profile is only shared if
+	 * the stop condition of this profile holds for the part retrieved.
+	 */
+	TextResult fetch(URI uri, RequestOptions options, Predicate<CharSequence> stopCondition) throws WebClientException {
+		var key = Key.of(uri, options);
+		while (true) {
+			var fetch = new Fetch(new CompletableFuture<>());
+			var existing = fetches.putIfAbsent(key, fetch);
+			if (existing == null) {
+				return load(key, fetch, options, stopCondition);
+			}
+
+			var result = await(existing);
+			if (!result.partial() || (stopCondition != null && stopCondition.test(result.text()))) {
+				logger.debug("Using page retrieved for another profile");
+				return result;
+			}
+
+			// Part retrieved is not enough for this profile
+			fetch = new Fetch(new CompletableFuture<>());
+			if (fetches.replace(key, existing, fetch)) {
+				return load(key, fetch, options, null);
+			}
+		}
+	}
+
+	private TextResult load(Key key, Fetch fetch, RequestOptions options, Predicate<CharSequence> stopCondition)
+			throws WebClientException {
+		try {
+			var result = webClient.getConditionalContent(key.uri(), options, stopCondition);
+			fetch.future().complete(result);
+			return result;
+		} catch (WebClientException | RuntimeException e) {
+			fetches.remove(key, fetch);
+			fetch.future().completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static TextResult await(Fetch fetch) throws WebClientException {
+		try {
+			return LangUtils.getUninterruptibly(fetch.future());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof WebClientException webClientException) {
+				throw webClientException;
+			}
+			throw new WebClientException(LangUtils.getRootCause(e).toString());
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package jkml.downloader.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jkml.downloader.http.ContentStore;
+
+/**
+ * Content-addressed store of downloaded files, keyed by the SHA-256 hash of
+ * their content. Blobs are hard links to downloaded files, so storing a file
+ * takes no extra space, and files with the same content in several output
+ * directories are replaced with links to a single blob. Where hard links are
+ * not supported, files are copied from the store and not added to it. A blob
+ * is checked against its hash before its content is used, as a file linked to
+ * it may have been modified in place, and removed from the store if it no
+ * longer matches.
+ */
+public class BlobStore implements ContentStore {
+
+	public static final String DIRECTORY_NAME = "blobs";
+
+	private final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+	private final Path directory;
+
+	public BlobStore(Path dataDirectory) {
+		this.directory = dataDirectory.resolve(DIRECTORY_NAME);
+	}
+
+	private Path getBlobDirectory(String sha256) {
+		return directory.resolve(sha256.substring(0, 2));
+	}
+
+	Path getBlobPath(String sha256) {
+		return getBlobDirectory(sha256).resolve(sha256);
+	}
+
+	@Override
+	public boolean contains(String sha256) {
+		return Files.exists(getBlobPath(sha256));
+	}
+
+	/**
+	 * Whether the file exists and is a link to the blob of the hash
+	 */
+	public boolean isLinked(Path path, String sha256) throws IOException {
+		var blobPath = getBlobPath(sha256);
+		return Files.exists(path) && Files.exists(blobPath) && Files.isSameFile(blobPath, path);
+	}
+
+	/**
+	 * Add the downloaded file to the store, or replace it with a link to the blob
+	 * if the same content is already stored
+	 */
+	public void add(Path path, String sha256) throws IOException {
+		var blobPath = getBlobPath(sha256);
+		if (Files.exists(blobPath)) {
+			if (Files.isSameFile(blobPath, path)) {
+				return;
+			}
+			if (Files.size(blobPath) != Files.size(path)) {
+				logger.warn("Stored content differs in size from file: {}", blobPath);
+				return;
+			}
+			if (verify(blobPath, sha256)) {
+				link(blobPath, path);
+				logger.info("Replaced file with link to stored content: {}", sha256);
+				return;
+			}
+			// Downloaded file takes the place of the blob removed
+		}
+
+		Files.createDirectories(getBlobDirectory(sha256));
+		try {
+			Files.createLink(blobPath, path);
+			logger.debug("Stored file content: {}", sha256);
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			logger.debug("Failed to store file content: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Create or replace the file with a copy of the blob, which can be modified
+	 * without affecting the blob or the files linked to it
+	 */
+	@Override
+	public boolean copyTo(String sha256, Path path) throws IOException {
+		var blobPath = getBlobPath(sha256);
+		if (Files.notExists(blobPath)) {
+			return false;
+		}
+		createParentDirectory(path);
+		// Blob is hashed as it is copied instead of being read twice
+		var digest = createDigest();
+		try (var in = new DigestInputStream(Files.newInputStream(blobPath), digest)) {
+			Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+		if (!matches(digest, sha256)) {
+			Files.deleteIfExists(path);
+			remove(blobPath, sha256);
+			return false;
+		}
+		logger.info("Used stored content: {}", sha256);
+		return true;
+	}
+
+	/**
+	 * Create or replace the file with a hard link to the blob, or with a copy of
+	 * it if hard links are not supported
+	 *
+	 * @return whether the content is stored and the file was created
+	 */
+	public boolean linkTo(String sha256, Path path) throws IOException {
+		var blobPath = getBlobPath(sha256);
+		if (Files.notExists(blobPath) || !verify(blobPath, sha256)) {
+			return false;
+		}
+		createParentDirectory(path);
+		link(blobPath, path);
+		logger.info("Used stored content: {}", sha256);
+		return true;
+	}
+
+	private static void createParentDirectory(Path path) throws IOException {
+		var dir = path.toAbsolutePath().getParent();
+		if (dir != null) {
+			Files.createDirectories(dir);
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean matches(MessageDigest digest, String sha256) {
+		return HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256);
+	}
+
+	/**
+	 * Check the blob against its hash, and remove it from the store if it no
+	 * longer matches
+	 */
+	private boolean verify(Path blobPath, String sha256) throws IOException {
+		var digest = createDigest();
+		try (InputStream in = new DigestInputStream(Files.newInputStream(blobPath), digest)) {
+			in.transferTo(OutputStream.nullOutputStream());
+		}
+		if (matches(digest, sha256)) {
+			return true;
+		}
+		remove(blobPath, sha256);
+		return false;
+	}
+
+	private void remove(Path blobPath, String sha256) throws IOException {
+		logger.warn("Removed stored content that does not match its hash: {}", sha256);
+		Files.deleteIfExists(blobPath);
+	}
+
+	/**
+	 * Replace the file with a hard link to the blob, or with a copy of it if hard
+	 * links are not supported
+	 */
+	private static void link(Path blobPath, Path path) throws IOException {
+		var tmpPath = path.resolveSibling(path.getFileName() + ".link");
+		Files.deleteIfExists(tmpPath);
+		try {
+			Files.createLink(tmpPath, blobPath);
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			Files.copy(blobPath, tmpPath, StandardCopyOption.COPY_ATTRIBUTES);
+		}
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
@@ -0,0 +1,148 @@
+package jkml.downloader.cache;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import jkml.downloader.html.FileInfo;
+import jkml.downloader.profile.GsonUtils;
+
+/**
+ * Persistent cache of the validators of pages and the file info extracted from
+ * them, so that an unchanged page need not be downloaded and scraped again.
+ * Entries are keyed by page URL and hold the file info found by each distinct
+ * combination of scraping patterns.
+ */
+public class PageCache {
+
+	public static final String FILE_NAME = "page-cache.json";
+
+	/**
+	 * Validators of a page and the file info extracted from it keyed by
+	 * {@link PageCache#getScrapeKey(String, String, String)}
+	 */
+	public record Entry(String etag, Instant lastModified, Map<String, FileInfo> fileInfos) {
+
+		public Entry {
+			fileInfos = (fileInfos == null) ? Map.of() : Map.copyOf(fileInfos);
+		}
+
+		boolean hasSameValidators(String etag, Instant lastModified) {
+			return Objects.equals(this.etag, etag) && Objects.equals(this.lastModified, lastModified);
+		}
+
+	}
+
+	private static final TypeToken<Map<String, Entry>> ENTRIES_TYPE = new TypeToken<>() {
+	};
+
+	private final Logger logger = LoggerFactory.getLogger(PageCache.class);
+
+	private final Path dataDirectory;
+
+	private final Path path;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean modified = new AtomicBoolean();
+
+	public PageCache(Path dataDirectory) {
+		this.dataDirectory = dataDirectory;
+		this.path = dataDirectory.resolve(FILE_NAME);
+	}
+
+	public static String getScrapeKey(String linkPattern, String linkOccurrence, String versionPattern) {
+		return linkPattern + "\n" + linkOccurrence + "\n" + versionPattern;
+	}
+
+	/**
+	 * Load entries from the cache file. A missing or unreadable file leaves the
+	 * cache empty.
+	 */
+	public void load() {
+		if (Files.notExists(path)) {
+			return;
+		}
+		try (var reader = Files.newBufferedReader(path)) {
+			var map = GsonUtils.createGson().fromJson(reader, ENTRIES_TYPE);
+			if (map != null) {
+				entries.putAll(map);
+			}
+			logger.debug("Loaded page cache entry count: {}", entries.size());
+		} catch (IOException | JsonParseException e) {
+			logger.atWarn().log("Failed to load page cache {}: {}", path, e.toString());
+		}
+	}
+
+	/**
+	 * Write entries to the cache file if any has changed since the last load or
+	 * save
+	 */
+	public void save() throws IOException {
+		if (!modified.getAndSet(false)) {
+			return;
+		}
+		Files.createDirectories(dataDirectory);
+		var tmpPath = dataDirectory.resolve(FILE_NAME + ".tmp");
+		try (var writer = Files.newBufferedWriter(tmpPath)) {
+			GsonUtils.createGson().toJson(new TreeMap<>(entries), ENTRIES_TYPE.getType(), writer);
+		}
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public Entry get(URI pageUri) {
+		return entries.get(pageUri.toString());
+	}
+
+	/**
+	 * Record the validators of a page that has been downloaded. The file info of
+	 * the page is discarded unless the validators are the same as before.
+	 */
+	public void update(URI pageUri, String etag, Instant lastModified) {
+		if (etag == null && lastModified == null) {
+			// Page cannot be fetched conditionally
+			if (entries.remove(pageUri.toString()) != null) {
+				modified.set(true);
+			}
+			return;
+		}
+		entries.compute(pageUri.toString(), (k, v) -> {
+			if (v != null && v.hasSameValidators(etag, lastModified)) {
+				return v;
+			}
+			modified.set(true);
+			return new Entry(etag, lastModified, Map.of());
+		});
+	}
+
+	/**
+	 * Record the file info extracted from a page with the given scrape key
+	 */
+	public void putFileInfo(URI pageUri, String scrapeKey, FileInfo fileInfo) {
+		entries.computeIfPresent(pageUri.toString(), (k, v) -> {
+			if (fileInfo.equals(v.fileInfos().get(scrapeKey))) {
+				return v;
+			}
+			var fileInfos = new HashMap<>(v.fileInfos());
+			fileInfos.put(scrapeKey, fileInfo);
+			modified.set(true);
+			return new Entry(v.etag(), v.lastModified(), fileInfos);
+		});
+	}
+
+}
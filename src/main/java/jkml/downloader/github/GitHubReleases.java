@@ -0,0 +1,166 @@
+package jkml.downloader.github;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.apache.hc.core5.http.HttpStatus;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import jkml.downloader.http.RequestOptions;
+
+/**
+ * Maps GitHub release pages to the equivalent GitHub REST API endpoints and
+ * renders the JSON response as HTML links like those on the release pages, so
+ * that link and version patterns written for the pages also apply to it.
+ */
+public class GitHubReleases {
+
+	public static final URI DEFAULT_API_URI = URI.create("https://api.github.com/");
+
+	/**
+	 * Media type of the JSON responses of the GitHub REST API
+	 */
+	public static final String MEDIA_TYPE = "application/vnd.github+json";
+
+	private static final Pattern RELEASES_PATH_PATTERN = Pattern.compile("/([^/]+)/([^/]+)/releases(?:/(latest|tag/[^/]+))?/?");
+
+	private final URI apiUri;
+
+	private final String token;
+
+	public GitHubReleases(URI apiUri) {
+		this(apiUri, null);
+	}
+
+	/**
+	 * @param token access token sent with API requests to raise the rate limit,
+	 *              or null to send unauthenticated requests
+	 */
+	public GitHubReleases(URI apiUri, String token) {
+		this.apiUri = apiUri;
+		this.token = token;
+	}
+
+	static boolean isGitHub(URI uri) {
+		var host = uri.getHost();
+		if (host == null) {
+			return false;
+		}
+		host = host.toLowerCase(Locale.ROOT);
+		return "github.com".equals(host) || host.endsWith(".github.com");
+	}
+
+	/**
+	 * Get the API URI of the releases on a GitHub release page, or null if the
+	 * URI is not that of a GitHub release page
+	 */
+	public URI getApiUri(URI pageUri) {
+		if (!isGitHub(pageUri) || pageUri.getRawPath() == null) {
+			return null;
+		}
+
+		var matcher = RELEASES_PATH_PATTERN.matcher(pageUri.getRawPath());
+		if (!matcher.matches()) {
+			return null;
+		}
+
+		var path = "repos/" + matcher.group(1) + "/" + matcher.group(2) + "/releases";
+		var release = matcher.group(3);
+		if (release != null) {
+			// API uses "tags" where release pages use "tag"
+			path += "/" + release.replaceFirst("^tag/", "tags/");
+		}
+		return apiUri.resolve(path);
+	}
+
+	/**
+	 * Set the headers of a request to the API in the request options
+	 */
+	public void setRequestHeaders(RequestOptions options) {
+		options.setAccept(MEDIA_TYPE);
+		if (token != null) {
+			options.setAuthorization("Bearer " + token);
+		}
+	}
+
+	/**
+	 * Whether a response status means the API refuses further requests for now,
+	 * as when the rate limit is exceeded
+	 */
+	public static boolean isRateLimited(int statusCode) {
+		return statusCode == HttpStatus.SC_FORBIDDEN || statusCode == HttpStatus.SC_TOO_MANY_REQUESTS;
+	}
+
+	/**
+	 * Render releases in an API response, which is either an array of releases
+	 * or a single release, as one link to each release tag followed by one link
+	 * to each of its assets. Draft releases are left out.
+	 *
+	 * @throws JsonParseException if the response is not valid JSON
+	 */
+	public static String toHtml(CharSequence json) {
+		var element = JsonParser.parseString(json.toString());
+		JsonArray releases;
+		if (element.isJsonArray()) {
+			releases = element.getAsJsonArray();
+		} else if (element.isJsonObject()) {
+			releases = new JsonArray();
+			releases.add(element);
+		} else {
+			throw new JsonParseException("Unexpected GitHub API response: " + element);
+		}
+
+		var html = new StringBuilder();
+		for (var releaseElement : releases) {
+			if (!releaseElement.isJsonObject()) {
+				continue;
+			}
+			var release = releaseElement.getAsJsonObject();
+			if (getBoolean(release, "draft")) {
+				continue;
+			}
+			var tagName = getString(release, "tag_name");
+			var htmlUrl = getString(release, "html_url");
+			if (tagName != null && htmlUrl != null) {
+				appendLink(html, htmlUrl, tagName);
+			}
+			var assets = release.get("assets");
+			if (assets == null || !assets.isJsonArray()) {
+				continue;
+			}
+			for (var assetElement : assets.getAsJsonArray()) {
+				if (!assetElement.isJsonObject()) {
+					continue;
+				}
+				var asset = assetElement.getAsJsonObject();
+				var downloadUrl = getString(asset, "browser_download_url");
+				if (downloadUrl != null) {
+					appendLink(html, downloadUrl, getString(asset, "name"));
+				}
+			}
+		}
+		return html.toString();
+	}
+
+	private static void appendLink(StringBuilder html, String url, String text) {
+		// Release pages link to the path without scheme and host
+		var path = URI.create(url).getRawPath();
+		html.append("<a href=\"").append(path).append("\">").append(text).append("</a>\n");
+	}
+
+	private static String getString(JsonObject object, String name) {
+		var value = object.get(name);
+		return (value == null || value.isJsonNull()) ? null : value.getAsString();
+	}
+
+	private static boolean getBoolean(JsonObject object, String name) {
+		var value = object.get(name);
+		return value != null && !value.isJsonNull() && value.getAsBoolean();
+	}
+
+}
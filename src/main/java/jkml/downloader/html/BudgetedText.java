@@ -0,0 +1,65 @@
+package jkml.downloader.html;
+
+import java.util.regex.Pattern;
+
+/**
+ * Text that limits the number of characters a matcher may read from it. Every
+ * step of the regex engine reads characters through {@link #charAt(int)}, so
+ * the count bounds the work spent on a pattern regardless of how it
+ * backtracks.
+ */
+final class BudgetedText implements CharSequence {
+
+	/**
+	 * Number of character reads allowed for each character of the text
+	 */
+	static final long STEPS_PER_CHAR = 100;
+
+	/**
+	 * Number of character reads allowed however short the text is
+	 */
+	static final long MIN_STEPS = 10_000_000;
+
+	private final CharSequence text;
+
+	private final Pattern pattern;
+
+	private final long budget;
+
+	private long steps;
+
+	BudgetedText(CharSequence text, Pattern pattern, long budget) {
+		this.text = text;
+		this.pattern = pattern;
+		this.budget = budget;
+	}
+
+	BudgetedText(CharSequence text, Pattern pattern) {
+		this(text, pattern, Math.max(MIN_STEPS, text.length() * STEPS_PER_CHAR));
+	}
+
+	@Override
+	public int length() {
+		return text.length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (++steps > budget) {
+			throw new PatternBudgetException(
+					"Pattern exceeded matching budget of %d steps: %s".formatted(budget, pattern.pattern()));
+		}
+		return text.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return text.subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,96 @@
+package jkml.downloader.html;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the SHA-256 checksum of a file in a page or in a checksum file, such
+ * as one in the format of the sha256sum tool
+ */
+public final class ChecksumFinder {
+
+	private static final Pattern SHA256_PATTERN = Pattern.compile("\\b[0-9a-fA-F]{64}\\b");
+
+	private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+	private ChecksumFinder() {
+	}
+
+	public static boolean isSha256(String text) {
+		return text != null && text.length() == 64 && SHA256_PATTERN.matcher(text).matches();
+	}
+
+	/**
+	 * Return the checksum in lowercase hexadecimal, or null if not found. With a
+	 * pattern, the checksum is its first capturing group, or the whole match if
+	 * it has none. Without a pattern, the checksum is the one on the line naming
+	 * the file, or else the only line holding nothing but a checksum.
+	 */
+	public static String find(CharSequence text, Pattern pattern, String fileName) {
+		if (pattern != null) {
+			var matcher = pattern.matcher(text);
+			if (!matcher.find()) {
+				return null;
+			}
+			return normalize((matcher.groupCount() > 0) ? matcher.group(1) : matcher.group());
+		}
+
+		String only = null;
+		for (var line : text.toString().split("\\R")) {
+			var matcher = SHA256_PATTERN.matcher(line);
+			if (!matcher.find()) {
+				continue;
+			}
+			if (namesFile(line, matcher.end(), fileName)) {
+				return normalize(matcher.group());
+			}
+			if (!line.strip().equals(matcher.group())) {
+				// Checksum of another file
+				continue;
+			}
+			if (only != null) {
+				return null;
+			}
+			only = normalize(matcher.group());
+		}
+		return only;
+	}
+
+	/**
+	 * Whether the line names the file, either as the rest of the line after the
+	 * checksum, as in sha256sum output, or as one of its fields, as in
+	 * {@code SHA256 (file.zip) = checksum}. A file name is only matched in full,
+	 * so that the checksum of {@code file.zip.asc} is not taken for that of
+	 * {@code file.zip}.
+	 */
+	private static boolean namesFile(String line, int checksumEnd, String fileName) {
+		if (isFileName(line.substring(checksumEnd).strip(), fileName)) {
+			return true;
+		}
+		for (var field : WHITESPACE_PATTERN.split(line.strip())) {
+			if (isFileName(field, fileName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isFileName(String field, String fileName) {
+		var name = field;
+		// Binary mode marker of sha256sum
+		if (name.startsWith("*")) {
+			name = name.substring(1);
+		}
+		if (name.startsWith("(") && name.endsWith(")")) {
+			name = name.substring(1, name.length() - 1);
+		} else if (name.endsWith(":") || name.endsWith(",")) {
+			name = name.substring(0, name.length() - 1);
+		}
+		return name.equals(fileName) || name.endsWith("/" + fileName);
+	}
+
+	private static String normalize(String checksum) {
+		return isSha256(checksum) ? checksum.toLowerCase(Locale.ROOT) : null;
+	}
+
+}
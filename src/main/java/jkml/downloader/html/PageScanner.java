@@ -0,0 +1,424 @@
+package jkml.downloader.html;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the first or last match of several patterns in a page in a single
+ * pass. The literal prefixes of the patterns are located together with an
+ * Aho-Corasick automaton and the patterns are only tried at the positions
+ * where their prefix occurs. Patterns without a usable literal prefix are
+ * searched for separately. Matches are the same as those found by
+ * {@link Matcher#find()}. Each pattern is given a budget of steps proportional
+ * to the length of the page, and a pattern exceeding it is reported as failed
+ * without affecting the others.
+ */
+public final class PageScanner {
+
+	/**
+	 * Pattern to scan for and the occurrence of its match wanted
+	 */
+	public record Target(Pattern pattern, Occurrence occurrence) {
+	}
+
+	private static final String METACHARACTERS = "[](){}.*+?^$|";
+
+	private static final int UNSUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL
+			| Pattern.CANON_EQ;
+
+	private final Map<Pattern, Integer> indexes = new IdentityHashMap<>();
+
+	private final List<Pattern> patterns = new ArrayList<>();
+
+	private final List<Boolean> lastWanted = new ArrayList<>();
+
+	private final int[] prefixLengths;
+
+	private final Automaton automaton;
+
+	public PageScanner(Collection<Target> targets) {
+		var prefixes = new ArrayList<String>();
+		for (var target : targets) {
+			var last = target.occurrence() == Occurrence.LAST;
+			var index = indexes.get(target.pattern());
+			if (index != null) {
+				lastWanted.set(index, lastWanted.get(index) || last);
+				continue;
+			}
+			indexes.put(target.pattern(), patterns.size());
+			patterns.add(target.pattern());
+			lastWanted.add(last);
+			prefixes.add(getLiteralPrefix(target.pattern()));
+		}
+
+		prefixLengths = prefixes.stream().mapToInt(String::length).toArray();
+		automaton = new Automaton(prefixes);
+	}
+
+	/**
+	 * Return the literal text every match of the pattern starts with, or an empty
+	 * string if it cannot be determined
+	 */
+	static String getLiteralPrefix(Pattern pattern) {
+		var regex = pattern.pattern();
+		if ((pattern.flags() & UNSUPPORTED_FLAGS) != 0 || hasTopLevelAlternation(regex)) {
+			return "";
+		}
+
+		var prefix = new StringBuilder();
+		var i = 0;
+		while (i < regex.length()) {
+			var c = regex.charAt(i);
+			int next;
+			if (c == '\\') {
+				// Only escaped punctuation stands for itself
+				if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+					break;
+				}
+				c = regex.charAt(i + 1);
+				next = i + 2;
+			} else if (METACHARACTERS.indexOf(c) >= 0) {
+				break;
+			} else {
+				next = i + 1;
+			}
+
+			// Quantified character may be absent
+			if (next < regex.length()) {
+				var quantifier = regex.charAt(next);
+				if (quantifier == '?' || quantifier == '*' || quantifier == '{') {
+					if (Character.isLowSurrogate(c) && !prefix.isEmpty()) {
+						prefix.setLength(prefix.length() - 1);
+					}
+					break;
+				}
+				if (quantifier == '+') {
+					prefix.append(c);
+					break;
+				}
+			}
+			prefix.append(c);
+			i = next;
+		}
+		return prefix.toString();
+	}
+
+	private static boolean hasTopLevelAlternation(String regex) {
+		var depth = 0;
+		var inClass = false;
+		for (var i = 0; i < regex.length(); ++i) {
+			var c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+					var end = regex.indexOf("\\E", i + 2);
+					i = (end < 0) ? regex.length() : end + 1;
+				} else {
+					++i;
+				}
+			} else if (inClass) {
+				inClass = c != ']';
+			} else if (c == '[') {
+				inClass = true;
+			} else if (c == '(') {
+				++depth;
+			} else if (c == ')') {
+				--depth;
+			} else if (c == '|' && depth == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Matches scan(CharSequence text) {
+		var scan = new Scan(text);
+		for (var i = 0; i < patterns.size(); ++i) {
+			if (prefixLengths[i] == 0) {
+				scan.find(i);
+			}
+		}
+		if (!automaton.isEmpty()) {
+			scan.scanPrefixes();
+		}
+		return new Matches(scan.first, scan.last, scan.failures);
+	}
+
+	/**
+	 * Matches found in a page
+	 */
+	public final class Matches {
+
+		private final MatchResult[] first;
+
+		private final MatchResult[] last;
+
+		private final String[] failures;
+
+		private Matches(MatchResult[] first, MatchResult[] last, String[] failures) {
+			this.first = first;
+			this.last = last;
+			this.failures = failures;
+		}
+
+		/**
+		 * Whether the page was scanned for the occurrence of the pattern
+		 */
+		public boolean contains(Pattern pattern, Occurrence occurrence) {
+			var index = indexes.get(pattern);
+			return index != null && (occurrence != Occurrence.LAST || lastWanted.get(index));
+		}
+
+		/**
+		 * Return the match of the pattern at the occurrence, or null if not found.
+		 * A null occurrence means the first one.
+		 *
+		 * @throws PatternBudgetException if matching the pattern exceeded its budget
+		 */
+		public MatchResult get(Pattern pattern, Occurrence occurrence) {
+			if (!contains(pattern, occurrence)) {
+				throw new IllegalArgumentException("Pattern not scanned for: " + pattern);
+			}
+			var index = indexes.get(pattern).intValue();
+			if (failures[index] != null) {
+				throw new PatternBudgetException(failures[index]);
+			}
+			return (occurrence == Occurrence.LAST) ? last[index] : first[index];
+		}
+
+	}
+
+	private final class Scan {
+
+		private final CharSequence text;
+
+		private final Matcher[] matchers = new Matcher[patterns.size()];
+
+		private final MatchResult[] first = new MatchResult[patterns.size()];
+
+		private final MatchResult[] last = new MatchResult[patterns.size()];
+
+		/**
+		 * Position from which the next match of each pattern may start, as with
+		 * successive calls to {@link Matcher#find()}
+		 */
+		private final int[] nextStarts = new int[patterns.size()];
+
+		private final boolean[] done = new boolean[patterns.size()];
+
+		private final String[] failures = new String[patterns.size()];
+
+		private int remaining;
+
+		private Scan(CharSequence text) {
+			this.text = text;
+			for (var length : prefixLengths) {
+				if (length > 0) {
+					++remaining;
+				}
+			}
+		}
+
+		private void find(int index) {
+			var matcher = patterns.get(index).matcher(new BudgetedText(text, patterns.get(index)));
+			try {
+				while (matcher.find()) {
+					record(index, matcher.toMatchResult());
+					if (done[index]) {
+						break;
+					}
+				}
+			} catch (PatternBudgetException e) {
+				fail(index, e);
+			}
+		}
+
+		private void scanPrefixes() {
+			var state = 0;
+			for (var position = 0; position < text.length() && remaining > 0; ++position) {
+				state = automaton.next(state, text.charAt(position));
+				for (var index : automaton.outputs(state)) {
+					var start = position - prefixLengths[index] + 1;
+					if (!done[index] && start >= nextStarts[index]) {
+						tryMatch(index, start);
+					}
+				}
+			}
+		}
+
+		private void tryMatch(int index, int start) {
+			var matcher = matchers[index];
+			if (matcher == null) {
+				// Let anchors and lookarounds see the whole text as find() does
+				var pattern = patterns.get(index);
+				matcher = pattern.matcher(new BudgetedText(text, pattern)).useTransparentBounds(true)
+						.useAnchoringBounds(false);
+				matchers[index] = matcher;
+			}
+			matcher.region(start, text.length());
+			try {
+				if (matcher.lookingAt()) {
+					record(index, matcher.toMatchResult());
+				}
+			} catch (PatternBudgetException e) {
+				fail(index, e);
+			}
+			if (done[index]) {
+				--remaining;
+			}
+		}
+
+		private void fail(int index, PatternBudgetException exception) {
+			failures[index] = exception.getMessage();
+			first[index] = null;
+			last[index] = null;
+			done[index] = true;
+		}
+
+		private void record(int index, MatchResult result) {
+			if (first[index] == null) {
+				first[index] = result;
+			}
+			last[index] = result;
+			nextStarts[index] = (result.end() == result.start()) ? result.end() + 1 : result.end();
+			done[index] = !lastWanted.get(index);
+		}
+
+	}
+
+	/**
+	 * Aho-Corasick automaton reporting the indexes of the prefixes ending at each
+	 * position of a text. Transitions are kept in primitive arrays, sorted by
+	 * character for binary search, with a direct table for ASCII characters from
+	 * the root state, which most characters of a page go through.
+	 */
+	private static final class Automaton {
+
+		private static final int[] NONE = new int[0];
+
+		private static final int ROOT_TABLE_SIZE = 128;
+
+		private final int[] rootTable = new int[ROOT_TABLE_SIZE];
+
+		private final char[][] labels;
+
+		private final int[][] targets;
+
+		private final List<int[]> outputs = new ArrayList<>();
+
+		private final int[] failures;
+
+		private Automaton(List<String> prefixes) {
+			var transitions = new ArrayList<Map<Character, Integer>>();
+			addState(transitions);
+			for (var i = 0; i < prefixes.size(); ++i) {
+				var prefix = prefixes.get(i);
+				if (prefix.isEmpty()) {
+					continue;
+				}
+				var state = 0;
+				for (var j = 0; j < prefix.length(); ++j) {
+					var c = prefix.charAt(j);
+					var next = transitions.get(state).get(c);
+					if (next == null) {
+						next = addState(transitions);
+						transitions.get(state).put(c, next);
+					}
+					state = next;
+				}
+				outputs.set(state, append(outputs.get(state), new int[] { i }));
+			}
+
+			labels = new char[transitions.size()][];
+			targets = new int[transitions.size()][];
+			for (var state = 0; state < transitions.size(); ++state) {
+				var entries = new TreeMap<>(transitions.get(state));
+				labels[state] = new char[entries.size()];
+				targets[state] = new int[entries.size()];
+				var k = 0;
+				for (var entry : entries.entrySet()) {
+					labels[state][k] = entry.getKey();
+					targets[state][k] = entry.getValue();
+					++k;
+				}
+			}
+			for (var c = 0; c < ROOT_TABLE_SIZE; ++c) {
+				rootTable[c] = Math.max(find(0, (char) c), 0);
+			}
+
+			// Link each state to the state of its longest proper suffix, breadth first
+			failures = new int[transitions.size()];
+			var queue = new ArrayDeque<Integer>();
+			for (var child : targets[0]) {
+				queue.add(child);
+			}
+			while (!queue.isEmpty()) {
+				int state = queue.poll();
+				for (var k = 0; k < labels[state].length; ++k) {
+					var child = targets[state][k];
+					failures[child] = next(failures[state], labels[state][k]);
+					outputs.set(child, append(outputs.get(child), outputs.get(failures[child])));
+					queue.add(child);
+				}
+			}
+		}
+
+		private int addState(List<Map<Character, Integer>> transitions) {
+			transitions.add(new HashMap<>());
+			outputs.add(NONE);
+			return transitions.size() - 1;
+		}
+
+		private static int[] append(int[] array1, int[] array2) {
+			if (array2.length == 0) {
+				return array1;
+			}
+			var result = new int[array1.length + array2.length];
+			System.arraycopy(array1, 0, result, 0, array1.length);
+			System.arraycopy(array2, 0, result, array1.length, array2.length);
+			return result;
+		}
+
+		private boolean isEmpty() {
+			return labels.length == 1;
+		}
+
+		/**
+		 * Return the target of the transition of the state on the character, or -1
+		 * if there is none
+		 */
+		private int find(int state, char c) {
+			var index = Arrays.binarySearch(labels[state], c);
+			return (index < 0) ? -1 : targets[state][index];
+		}
+
+		private int next(int state, char c) {
+			while (state != 0) {
+				var next = find(state, c);
+				if (next >= 0) {
+					return next;
+				}
+				state = failures[state];
+			}
+			if (c < ROOT_TABLE_SIZE) {
+				return rootTable[c];
+			}
+			return Math.max(find(0, c), 0);
+		}
+
+		private int[] outputs(int state) {
+			return outputs.get(state);
+		}
+
+	}
+
+}
@@ -3,6 +3,7 @@ package jkml.downloader.html;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
@@ -17,23 +18,77 @@ public class PageScraper {
 
 	private final URI baseUri;
 
-	private final String html;
+	private final CharSequence html;
 
-	public PageScraper(URI baseUri, String html) {
+	private final PageScanner.Matches matches;
+
+	public PageScraper(URI baseUri, CharSequence html) {
+		this(baseUri, html, null);
+	}
+
+	/**
+	 * Create a scraper using the matches found by a scan of the page for the
+	 * patterns of several profiles. Patterns not covered by the scan are
+	 * searched for in the page again.
+	 */
+	public PageScraper(URI baseUri, CharSequence html, PageScanner.Matches matches) {
 		this.baseUri = baseUri;
 		this.html = html;
+		this.matches = matches;
+	}
+
+	/**
+	 * Create the condition under which a prefix of a page is enough for
+	 * {@link #extractFileInfo(Pattern, Occurrence, Pattern)} to give the same
+	 * result as the whole page, or return null if the whole page is needed. A
+	 * match is only final if the matcher did not hit the end of the prefix. A
+	 * pattern exceeding its matching budget also stops the download, so that
+	 * extraction fails quickly on the part received.
+	 */
+	public static Predicate<CharSequence> createStopCondition(Pattern linkPattern, Occurrence linkOccurrence,
+			Pattern versionPattern) {
+		if (linkOccurrence == Occurrence.LAST) {
+			return null;
+		}
+		return text -> hasFinalMatch(linkPattern, text) && (versionPattern == null || hasFinalMatch(versionPattern, text));
+	}
+
+	private static boolean hasFinalMatch(Pattern pattern, CharSequence text) {
+		var matcher = pattern.matcher(new BudgetedText(text, pattern));
+		try {
+			return matcher.find() && !matcher.hitEnd();
+		} catch (PatternBudgetException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Return the matches of the patterns, scanning the page for link and version
+	 * together if they are not covered by the matches given
+	 */
+	private PageScanner.Matches getMatches(Pattern linkPattern, Occurrence linkOccurrence, Pattern versionPattern) {
+		if (matches != null && matches.contains(linkPattern, linkOccurrence)
+				&& (versionPattern == null || matches.contains(versionPattern, Occurrence.FIRST))) {
+			return matches;
+		}
+		var targets = new ArrayList<PageScanner.Target>(2);
+		targets.add(new PageScanner.Target(linkPattern, linkOccurrence));
+		if (versionPattern != null) {
+			targets.add(new PageScanner.Target(versionPattern, Occurrence.FIRST));
+		}
+		return new PageScanner(targets).scan(html);
 	}
 
+	/**
+	 * Extract the link and version of a file from the page
+	 *
+	 * @throws PatternBudgetException if matching a pattern exceeded its budget
+	 */
 	public FileInfo extractFileInfo(Pattern linkPattern, Occurrence linkOccurrence, Pattern versionPattern) {
+		var pageMatches = getMatches(linkPattern, linkOccurrence, versionPattern);
+
 		// Find link
-		var matcher = linkPattern.matcher(html);
-		MatchResult matchResult = null;
-		while (matcher.find()) {
-			matchResult = matcher.toMatchResult();
-			if (linkOccurrence != Occurrence.LAST) {
-				break;
-			}
-		}
+		var matchResult = pageMatches.get(linkPattern, linkOccurrence);
 		if (matchResult == null || matchResult.groupCount() < 1) {
 			logger.info("Link not found");
 			return null;
@@ -48,7 +103,7 @@ public class PageScraper {
 		// Find version
 		String version = null;
 		if (versionPattern != null) {
-			version = extractVersion(versionPattern);
+			version = extractVersion(pageMatches.get(versionPattern, Occurrence.FIRST));
 		} else if (matchResult.groupCount() >= 2) {
 			version = matchResult.group(2);
 			logger.info("Version found in link: {}", version);
@@ -57,13 +112,11 @@ public class PageScraper {
 	}
 
 	String extractVersion(Pattern pattern) {
-		String version = null;
-
-		var matcher = pattern.matcher(html);
-		if (matcher.find()) {
-			version = matcher.group(1);
-		}
+		return extractVersion(getMatches(pattern, Occurrence.FIRST, null).get(pattern, Occurrence.FIRST));
+	}
 
+	private String extractVersion(MatchResult matchResult) {
+		var version = (matchResult == null) ? null : matchResult.group(1);
 		if (version != null) {
 			logger.info("Version found in page: {}", version);
 		}
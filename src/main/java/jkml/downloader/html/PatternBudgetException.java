@@ -0,0 +1,18 @@
+package jkml.downloader.html;
+
+import java.io.Serial;
+
+/**
+ * Thrown when matching a pattern takes more steps than allowed for the text,
+ * which is usually caused by catastrophic backtracking
+ */
+public class PatternBudgetException extends RuntimeException {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	public PatternBudgetException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,206 @@
+package jkml.downloader.html;
+
+import java.util.ArrayDeque;
+
+/**
+ * Detects regular expressions prone to catastrophic backtracking
+ */
+public final class PatternChecker {
+
+	private static final String[] GROUP_PREFIXES = { "?:", "?=", "?!", "?>", "?<=", "?<!" };
+
+	/**
+	 * Quantifier state of the alternatives of a group parsed so far
+	 */
+	private static final class Group {
+
+		private boolean startsQuantified;
+
+		private boolean endsUnbounded;
+
+		private boolean atBranchStart = true;
+
+		private boolean lastUnbounded;
+
+		private void addAtom(boolean quantified, boolean unbounded, boolean optional) {
+			if (atBranchStart) {
+				startsQuantified |= quantified;
+				atBranchStart = false;
+			}
+			// Optional elements after an unbounded one leave the boundary ambiguous
+			lastUnbounded = unbounded || (optional && lastUnbounded);
+		}
+
+		private void endBranch() {
+			endsUnbounded |= lastUnbounded;
+			atBranchStart = true;
+			lastUnbounded = false;
+		}
+
+	}
+
+	private PatternChecker() {
+	}
+
+	/**
+	 * Whether the regular expression repeats without bound a group that both
+	 * starts with a quantified element and ends with an unbounded one, such as
+	 * {@code (a+)+} or {@code (\w+\s*)*}. The boundary between repetitions of such
+	 * a group is ambiguous, so the number of ways to match a text grows
+	 * exponentially with its length. Groups delimited by a literal, such as
+	 * {@code (\.\d+)*}, are not reported.
+	 */
+	public static boolean hasNestedQuantifiers(String regex) {
+		var groups = new ArrayDeque<Group>();
+		groups.push(new Group());
+		var i = 0;
+		while (i < regex.length()) {
+			var c = regex.charAt(i);
+			Group closed = null;
+			switch (c) {
+			case '\\' -> i = skipEscape(regex, i);
+			case '[' -> i = skipClass(regex, i);
+			case '(' -> {
+				var bodyStart = skipGroupPrefix(regex, i + 1);
+				if (regex.charAt(bodyStart - 1) != ')') {
+					groups.push(new Group());
+				}
+				i = bodyStart;
+				continue;
+			}
+			case ')' -> {
+				if (groups.size() == 1) {
+					return false;
+				}
+				closed = groups.pop();
+				closed.endBranch();
+				++i;
+			}
+			case '|' -> {
+				groups.peek().endBranch();
+				++i;
+				continue;
+			}
+			default -> ++i;
+			}
+
+			// Quantifier of the element just parsed
+			var quantifierStart = i;
+			i = skipQuantifier(regex, i);
+			var quantified = i > quantifierStart;
+			var quantifier = regex.substring(quantifierStart, i);
+			var unbounded = quantified && isUnbounded(quantifier);
+			var optional = quantified && isOptional(quantifier);
+			if (closed != null) {
+				if (unbounded && closed.startsQuantified && closed.endsUnbounded) {
+					return true;
+				}
+				groups.peek().addAtom(quantified || closed.startsQuantified,
+						unbounded || (!quantified && closed.endsUnbounded), optional);
+			} else {
+				groups.peek().addAtom(quantified, unbounded, optional);
+			}
+		}
+		return false;
+	}
+
+	private static int skipEscape(String regex, int i) {
+		if (i + 1 >= regex.length()) {
+			return regex.length();
+		}
+		var c = regex.charAt(i + 1);
+		if (c == 'Q') {
+			var end = regex.indexOf("\\E", i + 2);
+			return (end < 0) ? regex.length() : end + 2;
+		}
+		if ((c == 'p' || c == 'P' || c == 'x' || c == 'N') && i + 2 < regex.length() && regex.charAt(i + 2) == '{') {
+			var end = regex.indexOf('}', i + 3);
+			return (end < 0) ? regex.length() : end + 1;
+		}
+		if (c == 'k' && i + 2 < regex.length() && regex.charAt(i + 2) == '<') {
+			var end = regex.indexOf('>', i + 3);
+			return (end < 0) ? regex.length() : end + 1;
+		}
+		return i + 2;
+	}
+
+	private static int skipClass(String regex, int i) {
+		var depth = 0;
+		while (i < regex.length()) {
+			var c = regex.charAt(i);
+			if (c == '\\') {
+				i = skipEscape(regex, i);
+				continue;
+			}
+			if (c == '[') {
+				++depth;
+			} else if (c == ']' && --depth == 0) {
+				return i + 1;
+			}
+			++i;
+		}
+		return i;
+	}
+
+	/**
+	 * Return the position of the body of a group, or the position after the
+	 * group if it only sets inline flags
+	 */
+	private static int skipGroupPrefix(String regex, int i) {
+		if (i >= regex.length() || regex.charAt(i) != '?') {
+			return i;
+		}
+		if (regex.startsWith("?<", i) && i + 2 < regex.length() && Character.isLetter(regex.charAt(i + 2))) {
+			var end = regex.indexOf('>', i);
+			return (end < 0) ? regex.length() : end + 1;
+		}
+		for (var prefix : GROUP_PREFIXES) {
+			if (regex.startsWith(prefix, i)) {
+				return i + prefix.length();
+			}
+		}
+		var j = i + 1;
+		while (j < regex.length() && (Character.isLetter(regex.charAt(j)) || regex.charAt(j) == '-')) {
+			++j;
+		}
+		return (j < regex.length() && (regex.charAt(j) == ':' || regex.charAt(j) == ')')) ? j + 1 : j;
+	}
+
+	private static int skipQuantifier(String regex, int i) {
+		if (i >= regex.length()) {
+			return i;
+		}
+		var c = regex.charAt(i);
+		if (c == '*' || c == '+' || c == '?') {
+			++i;
+		} else if (c == '{') {
+			var end = regex.indexOf('}', i);
+			if (end < 0) {
+				return i;
+			}
+			i = end + 1;
+		} else {
+			return i;
+		}
+		// Lazy or possessive variant
+		if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+			++i;
+		}
+		return i;
+	}
+
+	private static boolean isOptional(String quantifier) {
+		var c = quantifier.charAt(0);
+		return c == '?' || c == '*' || quantifier.startsWith("{0");
+	}
+
+	private static boolean isUnbounded(String quantifier) {
+		// Possessive quantifiers never give back what they matched
+		if (quantifier.length() > 1 && quantifier.endsWith("+")) {
+			return false;
+		}
+		var c = quantifier.charAt(0);
+		return c == '*' || c == '+' || (c == '{' && quantifier.contains(",}"));
+	}
+
+}
@@ -0,0 +1,111 @@
+package jkml.downloader.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writer of downloaded content to a file channel. The small chunks in which
+ * content is received are gathered in a pooled buffer and written in few large
+ * writes. A chunk that does not fit in the buffer is written together with it
+ * in a single gathering write. Content is written as received when no buffer
+ * is available.
+ */
+final class CoalescingWriter {
+
+	private final WritableByteChannel channel;
+
+	private final WriteBufferPool pool;
+
+	/**
+	 * Position in the file channel of the next byte written, or -1 to write at the
+	 * position of the channel
+	 */
+	private long position;
+
+	private ByteBuffer buffer;
+
+	/**
+	 * @param pool pool of write buffers, or null to write content as received
+	 */
+	public CoalescingWriter(WritableByteChannel channel, WriteBufferPool pool) {
+		this.channel = channel;
+		this.pool = pool;
+		this.position = -1;
+	}
+
+	/**
+	 * Create a writer of content at a position of a file channel shared with
+	 * other writers
+	 */
+	public CoalescingWriter(FileChannel channel, long position, WriteBufferPool pool) {
+		this.channel = channel;
+		this.pool = pool;
+		this.position = position;
+	}
+
+	public void write(ByteBuffer src) throws IOException {
+		if (buffer == null && pool != null) {
+			buffer = pool.acquire();
+		}
+		if (buffer == null) {
+			writeFully(src);
+		} else if (src.remaining() < buffer.remaining()) {
+			buffer.put(src);
+		} else {
+			buffer.flip();
+			writeFully(buffer, src);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Write the content gathered in the buffer
+	 */
+	public void flush() throws IOException {
+		if (buffer != null && buffer.position() > 0) {
+			buffer.flip();
+			writeFully(buffer);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Return the buffer to the pool. Content not flushed is discarded.
+	 */
+	public void release() {
+		if (buffer != null) {
+			pool.release(buffer);
+			buffer = null;
+		}
+	}
+
+	private void writeFully(ByteBuffer... srcs) throws IOException {
+		if (position < 0 && channel instanceof GatheringByteChannel gatheringChannel) {
+			while (srcs[srcs.length - 1].hasRemaining()) {
+				record(gatheringChannel.write(srcs));
+			}
+			return;
+		}
+		for (var src : srcs) {
+			while (src.hasRemaining()) {
+				if (position < 0) {
+					record(channel.write(src));
+				} else {
+					var count = ((FileChannel) channel).write(src, position);
+					position += count;
+					record(count);
+				}
+			}
+		}
+	}
+
+	private void record(long count) {
+		if (pool != null) {
+			pool.recordWrite(count);
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package jkml.downloader.http;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Store of file content already downloaded, keyed by SHA-256 hash
+ */
+public interface ContentStore {
+
+	/**
+	 * Whether the content of the hash is stored
+	 *
+	 * @param sha256 SHA-256 hash of the content in lowercase hexadecimal
+	 */
+	boolean contains(String sha256);
+
+	/**
+	 * Create or replace the file with a copy of the stored content of the hash,
+	 * which is checked against the hash and can be modified without affecting the
+	 * store
+	 *
+	 * @param sha256 SHA-256 hash of the content in lowercase hexadecimal
+	 * @return whether the content is stored and the file was created
+	 */
+	boolean copyTo(String sha256, Path path) throws IOException;
+
+}
@@ -0,0 +1,45 @@
+package jkml.downloader.http;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hc.core5.http.ContentType;
+
+/**
+ * Check that a response holds the file requested, such as a server error page
+ * sent with status 200 instead. Each method returns the reason the content is
+ * rejected, or null if it is accepted.
+ */
+public interface ContentValidator {
+
+	/**
+	 * Maximum number of bytes at the start of the content given to
+	 * {@link #checkHead(ByteBuffer)}
+	 */
+	int HEAD_LENGTH = 512;
+
+	/**
+	 * Check the response before its content is received
+	 *
+	 * @param contentType type of the content, or null if not given
+	 * @param length      length of the file, or -1 if not known
+	 */
+	default String checkResponse(ContentType contentType, long length) {
+		return null;
+	}
+
+	/**
+	 * Check the first bytes of the content, which are fewer than
+	 * {@link #HEAD_LENGTH} only for a shorter file
+	 */
+	default String checkHead(ByteBuffer head) {
+		return null;
+	}
+
+	/**
+	 * Check the length of the file once all its content is received
+	 */
+	default String checkLength(long length) {
+		return null;
+	}
+
+}
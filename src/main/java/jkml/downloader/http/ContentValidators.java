@@ -0,0 +1,153 @@
+package jkml.downloader.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hc.core5.http.ContentType;
+
+import jkml.downloader.util.StringUtils;
+
+/**
+ * Content validators provided for downloaded files
+ */
+public final class ContentValidators {
+
+	/**
+	 * Bytes that files start with, by file name extension
+	 */
+	private static final Map<String, byte[]> MAGIC_BYTES = createMagicBytes();
+
+	private static final Set<String> HTML_EXTENSIONS = Set.of("htm", "html", "xhtml");
+
+	private static final List<String> HTML_PREFIXES = List.of("<!doctype html", "<html", "<head", "<body");
+
+	private ContentValidators() {
+	}
+
+	private static Map<String, byte[]> createMagicBytes() {
+		var hex = HexFormat.of();
+		var zip = hex.parseHex("504b");
+		var gzip = hex.parseHex("1f8b");
+		var exe = hex.parseHex("4d5a");
+		var xz = hex.parseHex("fd377a585a00");
+		return Map.ofEntries(Map.entry("zip", zip), Map.entry("jar", zip), Map.entry("apk", zip),
+				Map.entry("nupkg", zip), Map.entry("vsix", zip), Map.entry("xpi", zip), Map.entry("gz", gzip),
+				Map.entry("tgz", gzip), Map.entry("xz", xz), Map.entry("txz", xz),
+				Map.entry("7z", hex.parseHex("377abcaf271c")), Map.entry("bz2", hex.parseHex("425a68")),
+				Map.entry("zst", hex.parseHex("28b52ffd")), Map.entry("rar", hex.parseHex("526172211a07")),
+				Map.entry("exe", exe), Map.entry("dll", exe), Map.entry("msi", hex.parseHex("d0cf11e0a1b11ae1")),
+				Map.entry("pdf", hex.parseHex("25504446")), Map.entry("png", hex.parseHex("89504e47")),
+				Map.entry("deb", "!<arch>".getBytes(StandardCharsets.US_ASCII)),
+				Map.entry("rpm", hex.parseHex("edabeedb")));
+	}
+
+	private static String getExtension(String fileName) {
+		var index = fileName.lastIndexOf('.');
+		return (index == -1) ? StringUtils.EMPTY : fileName.substring(index + 1).toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Return the validators of a file applied unless content validation is turned
+	 * off: the content of a file with a known binary format must start with the
+	 * bytes of the format, and only a file named as a web page may hold one
+	 */
+	public static List<ContentValidator> create(String fileName) {
+		var result = new ArrayList<ContentValidator>();
+		var extension = getExtension(fileName);
+		var magicBytes = MAGIC_BYTES.get(extension);
+		// Web page is reported as such rather than as a mismatched format
+		if (!HTML_EXTENSIONS.contains(extension)) {
+			result.add(notHtml(magicBytes != null));
+		}
+		if (magicBytes != null) {
+			result.add(magicBytes(extension, magicBytes));
+		}
+		return result;
+	}
+
+	/**
+	 * Return a validator requiring the content to start with the bytes
+	 */
+	public static ContentValidator magicBytes(String format, byte[] magicBytes) {
+		var expected = ByteBuffer.wrap(magicBytes.clone());
+		return new ContentValidator() {
+
+			@Override
+			public String checkHead(ByteBuffer head) {
+				if (head.remaining() < expected.remaining()
+						|| !head.slice(head.position(), expected.remaining()).equals(expected)) {
+					return "Content does not start with the bytes of %s format".formatted(format);
+				}
+				return null;
+			}
+
+		};
+	}
+
+	/**
+	 * Return a validator rejecting content that looks like a web page
+	 *
+	 * @param binary whether the file has a binary format, so that a response
+	 *               declared as a web page is rejected without looking at the
+	 *               content
+	 */
+	public static ContentValidator notHtml(boolean binary) {
+		return new ContentValidator() {
+
+			@Override
+			public String checkResponse(ContentType contentType, long length) {
+				if (binary && contentType != null && ContentType.TEXT_HTML.isSameMimeType(contentType)) {
+					return "Content is a web page: " + contentType.getMimeType();
+				}
+				return null;
+			}
+
+			@Override
+			public String checkHead(ByteBuffer head) {
+				return isHtml(head) ? "Content is a web page" : null;
+			}
+
+		};
+	}
+
+	static boolean isHtml(ByteBuffer head) {
+		var text = StandardCharsets.ISO_8859_1.decode(head.slice()).toString();
+		// Skip UTF-8 byte order mark and leading white space
+		if (text.startsWith("\u00ef\u00bb\u00bf")) {
+			text = text.substring(3);
+		}
+		text = text.stripLeading().toLowerCase(Locale.ROOT);
+		for (var prefix : HTML_PREFIXES) {
+			if (text.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return a validator rejecting files smaller than the size
+	 */
+	public static ContentValidator minimumSize(long minimumSize) {
+		return new ContentValidator() {
+
+			@Override
+			public String checkResponse(ContentType contentType, long length) {
+				return (length >= 0) ? checkLength(length) : null;
+			}
+
+			@Override
+			public String checkLength(long length) {
+				return (length < minimumSize) ? "File smaller than %d bytes: %d".formatted(minimumSize, length) : null;
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,25 @@
+package jkml.downloader.http;
+
+/**
+ * How far a downloaded file is written to storage before it is considered
+ * saved
+ */
+public enum Durability {
+
+	/**
+	 * Leave writing the file to storage to the operating system
+	 */
+	NONE,
+
+	/**
+	 * Write the file content to storage before it replaces the local file
+	 */
+	SYNC_FILE,
+
+	/**
+	 * Also write the directory to storage once the file replaced the local file,
+	 * so that the replacement itself survives a power loss
+	 */
+	SYNC_DIRECTORY
+
+}
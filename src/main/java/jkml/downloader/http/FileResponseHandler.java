@@ -4,14 +4,19 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.nio.channels.WritableByteChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.apache.hc.core5.http.ContentType;
@@ -37,15 +42,132 @@ class FileResponseHandler extends ResponseHandler<FileResult> {
 
 	private final Path path;
 
+	private final long offset;
+
+	private final String checksum;
+
+	private final Durability durability;
+
+	private final List<ContentValidator> validators;
+
+	private final ContentStore contentStore;
+
+	private final WriteBufferPool bufferPool;
+
 	private Instant lastModified;
 
+	private String etag;
+
 	private Path tmpPath;
 
-	private WritableByteChannel channel;
+	private FileChannel channel;
+
+	private CoalescingWriter writer;
+
+	/**
+	 * Length the partial file was extended to before its content was received, or
+	 * 0 if it was not preallocated
+	 */
+	private long preallocatedLength;
+
+	private long receivedCount;
+
+	/**
+	 * Position in the file of the first byte of the response content, which is 0
+	 * unless the response resumes the partial file
+	 */
+	private long contentOffset;
+
+	/**
+	 * Length of the file given by the response, or -1 if not known
+	 */
+	private long expectedLength;
+
+	/**
+	 * Size of the local file when the response started, or -1 if it did not exist
+	 */
+	private long existingSize;
+
+	/**
+	 * Start of the content gathered for the validators, or null once checked
+	 */
+	private ByteBuffer head;
+
+	/**
+	 * Digest of the content received, or null if the partial file is resumed and
+	 * hashed once complete
+	 */
+	private MessageDigest digest;
+
+	/**
+	 * SHA-256 hash of the stored content that the response advertised, or null if
+	 * the content is received
+	 */
+	private String storedSha256;
+
+	private boolean restartRequired;
+
+	private boolean received;
 
 	public FileResponseHandler(URI uri, Path path) {
+		this(uri, path, new RequestOptions(), List.of(), null, null);
+	}
+
+	/**
+	 * @param options      options of the request, giving the size of the partial
+	 *                     file to resume from, the expected SHA-256 hash of the
+	 *                     file content and the durability of the saved file
+	 * @param validators   validators of the content of the file
+	 * @param contentStore store of content that need not be transferred again, or
+	 *                     null if none
+	 * @param bufferPool   pool of buffers in which content is gathered before it
+	 *                     is written, or null to write content as received
+	 */
+	public FileResponseHandler(URI uri, Path path, RequestOptions options, List<ContentValidator> validators,
+			ContentStore contentStore, WriteBufferPool bufferPool) {
 		this.uri = uri;
 		this.path = path;
+		this.offset = options.getRangeStart();
+		this.checksum = options.getChecksum();
+		this.durability = options.getDurability();
+		this.validators = List.copyOf(validators);
+		this.contentStore = contentStore;
+		this.bufferPool = bufferPool;
+	}
+
+	static Path getPartialPath(URI uri, Path path) {
+		return path.resolveSibling(FileUtils.getFileName(uri) + ".partial");
+	}
+
+	/**
+	 * Get the path of the copy of stored content that the file is completed from
+	 */
+	static Path getStoredCopyPath(URI uri, Path path) {
+		return path.resolveSibling(FileUtils.getFileName(uri) + ".stored");
+	}
+
+	/**
+	 * Get the path of the file holding the entity tag of the remote file that the
+	 * local file was downloaded from
+	 */
+	static Path getETagPath(Path path) {
+		return path.resolveSibling(path.getFileName() + ".etag");
+	}
+
+	/**
+	 * Get the path of the file holding the validator (strong ETag or Last-Modified
+	 * value) of the remote file that the partial file was started against
+	 */
+	static Path getValidatorPath(Path partialPath) {
+		return partialPath.resolveSibling(partialPath.getFileName() + ".validator");
+	}
+
+	static String getValidator(HttpResponse response) {
+		var etag = HttpUtils.getHeader(response, HttpHeaders.ETAG);
+		if (etag != null && !etag.startsWith("W/")) {
+			return etag;
+		}
+		return HttpUtils.getHeader(response, HttpHeaders.LAST_MODIFIED);
 	}
 
 	static void checkFileName(String fileName, HttpResponse response) {
@@ -61,72 +183,427 @@ class FileResponseHandler extends ResponseHandler<FileResult> {
 			return;
 		}
 
-		if (Files.size(newFile) * 2 < Files.size(oldFile)) {
+		checkFileSize(Files.size(newFile), Files.size(oldFile), newFile);
+	}
+
+	/**
+	 * Reject a new file much smaller than the existing one, which is likely a
+	 * truncated file or an error page
+	 *
+	 * @param oldSize size of the existing file, or -1 if there is none
+	 */
+	static void checkFileSize(long newSize, long oldSize, Path newFile) {
+		if (newSize * 2 < oldSize) {
 			throw new ResponseException("New file smaller than half of existing file: " + newFile);
 		}
 	}
 
+	/**
+	 * Check the response with the validators before its content is received
+	 *
+	 * @param length length of the file, or -1 if not known
+	 */
+	static void checkResponse(List<ContentValidator> validators, ContentType contentType, long length) {
+		for (var validator : validators) {
+			var reason = validator.checkResponse(contentType, length);
+			if (reason != null) {
+				throw new ResponseException(reason);
+			}
+		}
+	}
+
+	private void checkHead() throws IOException {
+		head.flip();
+		for (var validator : validators) {
+			var reason = validator.checkHead(head.asReadOnlyBuffer());
+			if (reason != null) {
+				reject(reason);
+			}
+		}
+		head = null;
+	}
+
+	private void checkLength(long length) throws IOException {
+		if (expectedLength >= 0 && length != expectedLength) {
+			throw new ResponseException("Incomplete file content: %d of %d bytes".formatted(length, expectedLength));
+		}
+		checkFileSize(length, existingSize, tmpPath);
+		for (var validator : validators) {
+			var reason = validator.checkLength(length);
+			if (reason != null) {
+				reject(reason);
+			}
+		}
+	}
+
+	/**
+	 * Delete the partial file so that the rejected content is not resumed
+	 */
+	private void reject(String reason) throws IOException {
+		closeChannel();
+		Files.deleteIfExists(tmpPath);
+		Files.deleteIfExists(getValidatorPath(tmpPath));
+		throw new ResponseException(reason);
+	}
+
+	static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Feed the content of the file into the digest
+	 */
+	static void updateDigest(MessageDigest digest, Path file) throws IOException {
+		var buffer = ByteBuffer.allocate(64 * 1024);
+		try (var fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (fileChannel.read(buffer) >= 0) {
+				digest.update(buffer.flip());
+				buffer.clear();
+			}
+		}
+	}
+
+	/**
+	 * Return the hash of the digest in hexadecimal and check it against the
+	 * expected one, if any
+	 */
+	static String checkDigest(MessageDigest digest, String checksum) {
+		var actual = HexFormat.of().formatHex(digest.digest());
+		if (checksum != null && !checksum.toLowerCase(Locale.ROOT).equals(actual)) {
+			throw new ResponseException("Mismatched SHA-256 checksum: expected %s, actual %s".formatted(checksum, actual));
+		}
+		return actual;
+	}
+
 	private void closeChannel() {
 		if (channel == null) {
 			return;
 		}
-		try {
-			channel.close();
-			channel = null;
+		var fileChannel = channel;
+		channel = null;
+		// Content received is kept in the partial file so that it can be resumed
+		try (fileChannel) {
+			writer.flush();
+			if (preallocatedLength > receivedCount) {
+				fileChannel.truncate(receivedCount);
+			}
 		} catch (IOException e) {
 			throw new UncheckedIOException(e.getMessage(), e);
+		} finally {
+			writer.release();
 		}
 	}
 
+	/**
+	 * Whether the partial file could not be resumed and has been deleted, so the
+	 * whole file must be requested again
+	 */
+	public boolean isRestartRequired() {
+		return restartRequired;
+	}
+
 	@Override
 	protected boolean isValid(int code) {
+		if (offset > 0 && (code == HttpStatus.SC_PARTIAL_CONTENT || code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE)) {
+			return true;
+		}
 		return code == HttpStatus.SC_NOT_MODIFIED || code == HttpStatus.SC_OK;
 	}
 
 	@Override
 	protected void doStart(HttpResponse response, ContentType contentType) throws IOException {
-		if (response.getCode() == HttpStatus.SC_NOT_MODIFIED) {
+		var code = response.getCode();
+		if (code == HttpStatus.SC_NOT_MODIFIED) {
 			logger.info("Remote file not modified");
 			return;
 		}
 
-		if ((lastModified = HttpUtils.getTimeHeader(response, HttpHeaders.LAST_MODIFIED)) == null) {
-			throw new ResponseException("Remote file last modified time not available");
+		var fileName = FileUtils.getFileName(uri);
+		tmpPath = getPartialPath(uri, path);
+
+		if (code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+			logger.info("Partial file cannot be resumed");
+			Files.deleteIfExists(tmpPath);
+			Files.deleteIfExists(getValidatorPath(tmpPath));
+			restartRequired = true;
+			return;
+		}
+
+		lastModified = HttpUtils.getTimeHeader(response, HttpHeaders.LAST_MODIFIED);
+		etag = HttpUtils.getHeader(response, HttpHeaders.ETAG);
+		if (lastModified == null && etag == null) {
+			throw new ResponseException("Remote file last modified time and entity tag not available");
+		}
+		if (lastModified != null) {
+			logger.atDebug().log("Remote file last modified time: {}", TimeUtils.format(lastModified));
+		}
+		if (etag != null) {
+			logger.debug("Remote file entity tag: {}", etag);
 		}
-		logger.atDebug().log("Remote file last modified time: {}", TimeUtils.format(lastModified));
 
-		var fileName = FileUtils.getFileName(uri);
 		checkFileName(fileName, response);
-		tmpPath = path.resolveSibling(fileName + ".partial");
+
+		// Server may ignore the range and send the whole file
+		contentOffset = (code == HttpStatus.SC_PARTIAL_CONTENT) ? offset : 0;
+
+		// Reject content that cannot be that of the file before receiving it
+		var contentLength = HttpUtils.isContentEncoded(response) ? -1 : HttpUtils.getContentLength(response);
+		if (contentLength < 0) {
+			expectedLength = -1;
+		} else {
+			expectedLength = contentOffset + contentLength;
+		}
+		checkResponse(validators, contentType, expectedLength);
+		existingSize = Files.exists(path) ? Files.size(path) : -1;
+		if (expectedLength >= 0) {
+			checkFileSize(expectedLength, existingSize, tmpPath);
+		}
+
+		if (code == HttpStatus.SC_PARTIAL_CONTENT) {
+			if (HttpUtils.getContentRangeStart(response) != offset) {
+				throw new ResponseException("Unexpected %s header: %s".formatted(HttpHeaders.CONTENT_RANGE,
+						HttpUtils.getHeader(response, HttpHeaders.CONTENT_RANGE)));
+			}
+			logger.info("Resuming remote file content from byte {}", offset);
+			channel = FileChannel.open(tmpPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			writer = new CoalescingWriter(channel, bufferPool);
+			return;
+		}
+
+		storedSha256 = getStoredSha256(contentStore, response, checksum);
+		if (storedSha256 != null) {
+			logger.info("Remote file content with SHA-256 digest {} already stored", storedSha256);
+			// Skip the transfer of the response body
+			stop();
+		}
 
 		logger.info("Saving remote file content");
-		channel = Files.newByteChannel(tmpPath, openOptions);
+		if (!validators.isEmpty()) {
+			head = ByteBuffer.allocate(ContentValidator.HEAD_LENGTH);
+		}
+		digest = createDigest();
+		channel = FileChannel.open(tmpPath, openOptions);
+		writer = new CoalescingWriter(channel, bufferPool);
+		preallocate();
+
+		// Remember what the partial file is based on in case the transfer is interrupted
+		var validatorPath = getValidatorPath(tmpPath);
+		var validator = getValidator(response);
+		if (validator == null) {
+			Files.deleteIfExists(validatorPath);
+		} else {
+			Files.writeString(validatorPath, validator);
+		}
 	}
 
 	@Override
 	protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
-		do {
-			channel.write(src);
-		} while (src.hasRemaining());
+		if (channel == null) {
+			// Skip body of response not saved to file
+			return;
+		}
+
+		// Hash the content as it is written instead of reading the file again
+		if (digest != null) {
+			digest.update(src.slice());
+		}
+		receivedCount += src.remaining();
+		if (head != null) {
+			head.put(src.slice(src.position(), Math.min(src.remaining(), head.remaining())));
+			if (!head.hasRemaining()) {
+				checkHead();
+			}
+		}
+		writer.write(src);
 
 		if (endOfStream) {
+			if (head != null) {
+				checkHead();
+			}
+			// Rest of a preallocated file would also be left zeroed
+			checkLength(contentOffset + receivedCount);
 			closeChannel();
 			logger.info("Finished saving remote file content");
+			received = true;
+		}
+	}
+
+	/**
+	 * Replace the file with the content received, or with the stored content that
+	 * the response advertised. The file is hashed and written to storage, so this
+	 * is called once the exchange is complete rather than on an I/O thread of the
+	 * HTTP client.
+	 *
+	 * @return the result, or null if the stored content is no longer available
+	 *         and the file must be requested again
+	 */
+	public FileResult complete() throws IOException {
+		if (storedSha256 != null) {
+			if (!completeFromStore(contentStore, storedSha256, expectedLength, uri, path, lastModified, etag,
+					durability)) {
+				return null;
+			}
+			return new FileResult(lastModified, etag, storedSha256);
+		}
+		if (!received) {
+			return buildResult();
+		}
+		if (digest == null) {
+			// Content received is hashed along with that of the resumed partial file
+			digest = createDigest();
+			updateDigest(digest, tmpPath);
+		}
+		var sha256 = verify(tmpPath, digest, checksum);
+		completeFile(tmpPath, path, lastModified, etag, durability);
+		return new FileResult(lastModified, etag, sha256);
+	}
 
-			// Check file content
+	/**
+	 * Get the SHA-256 digest advertised by the response if the content store holds
+	 * that content
+	 *
+	 * @return the hash in hexadecimal, or null if the content is not stored
+	 */
+	static String getStoredSha256(ContentStore contentStore, HttpResponse response, String checksum) {
+		if (contentStore == null) {
+			return null;
+		}
+		// Digest of encoded content is not that of the file
+		if (HttpUtils.isContentEncoded(response)) {
+			return null;
+		}
+		var digest = HttpUtils.getSha256Digest(response);
+		if (digest == null || (checksum != null && !checksum.equalsIgnoreCase(digest))) {
+			return null;
+		}
+		return contentStore.contains(digest) ? digest : null;
+	}
+
+	/**
+	 * Complete the file from a copy of the stored content, which is not shared
+	 * with the store so that setting its modified time leaves the stored file
+	 * unchanged. A partial file left by an earlier transfer is deleted.
+	 *
+	 * @param length length of the file given by the response, or -1 if not known
+	 * @return whether the content is stored and the file was completed
+	 */
+	static boolean completeFromStore(ContentStore contentStore, String sha256, long length, URI uri, Path path,
+			Instant lastModified, String etag, Durability durability) throws IOException {
+		var tmpPath = getStoredCopyPath(uri, path);
+		if (!contentStore.copyTo(sha256, tmpPath)) {
+			return false;
+		}
+		try {
+			if (length >= 0 && Files.size(tmpPath) != length) {
+				Files.delete(tmpPath);
+				return false;
+			}
 			checkFileContent(tmpPath, path);
+			completeFile(tmpPath, path, lastModified, etag, durability);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmpPath);
+			throw e;
+		}
+		var partialPath = getPartialPath(uri, path);
+		Files.deleteIfExists(partialPath);
+		Files.deleteIfExists(getValidatorPath(partialPath));
+		return true;
+	}
 
-			// Update file last modified time
+	/**
+	 * Check the hash of the fully downloaded partial file and delete the partial
+	 * file if it does not match, so that it is neither used nor resumed
+	 *
+	 * @return hash of the partial file in hexadecimal
+	 */
+	static String verify(Path tmpPath, MessageDigest digest, String checksum) throws IOException {
+		try {
+			return checkDigest(digest, checksum);
+		} catch (ResponseException e) {
+			Files.deleteIfExists(tmpPath);
+			Files.deleteIfExists(getValidatorPath(tmpPath));
+			throw e;
+		}
+	}
+
+	/**
+	 * Replace the file with the fully downloaded partial file and record the
+	 * entity tag of the remote file for conditional requests. The size of the
+	 * partial file must have been checked against the file.
+	 */
+	static void completeFile(Path tmpPath, Path path, Instant lastModified, String etag, Durability durability)
+			throws IOException {
+		// Update file last modified time
+		if (lastModified != null) {
 			Files.setLastModifiedTime(tmpPath, FileTime.from(lastModified));
+		}
+
+		// Make sure the file is not replaced with one whose content is not yet stored
+		if (durability != Durability.NONE) {
+			try (var fileChannel = FileChannel.open(tmpPath, StandardOpenOption.WRITE)) {
+				fileChannel.force(true);
+			}
+		}
+
+		// Rename file
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+		Files.deleteIfExists(getValidatorPath(tmpPath));
+		if (durability == Durability.SYNC_DIRECTORY) {
+			syncDirectory(path);
+		}
+
+		// Save or discard entity tag
+		var etagPath = getETagPath(path);
+		if (etag == null) {
+			Files.deleteIfExists(etagPath);
+		} else {
+			Files.writeString(etagPath, etag);
+		}
+	}
+
+	/**
+	 * Write the directory entries of the file to storage. Directories cannot be
+	 * opened on some platforms, such as Windows, where the rename is left to the
+	 * file system.
+	 */
+	private static void syncDirectory(Path path) throws IOException {
+		var dir = path.toAbsolutePath().getParent();
+		if (dir == null) {
+			return;
+		}
+		FileChannel dirChannel;
+		try {
+			dirChannel = FileChannel.open(dir, StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+		try (dirChannel) {
+			dirChannel.force(true);
+		}
+	}
 
-			// Rename file
-			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+	/**
+	 * Extend the partial file to the length of the content if it is known, so that
+	 * the file system can allocate it at once
+	 */
+	private void preallocate() throws IOException {
+		if (expectedLength > 1) {
+			channel.write(ByteBuffer.allocate(1), expectedLength - 1);
+			preallocatedLength = expectedLength;
 		}
 	}
 
+	/**
+	 * Build the result of an exchange that saved no file. The result of one that
+	 * did is that of {@link #complete()}.
+	 */
 	@Override
 	protected FileResult buildResult() {
-		return (lastModified == null) ? new FileResult() : new FileResult(lastModified);
+		return new FileResult();
 	}
 
 	@Override
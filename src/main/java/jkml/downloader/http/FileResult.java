@@ -2,14 +2,32 @@ package jkml.downloader.http;
 
 import java.time.Instant;
 
-public record FileResult(Status status, Instant lastModified) {
+/**
+ * Outcome of a file download.
+ *
+ * @param status       whether the file was downloaded or is up to date
+ * @param lastModified last modified time of the remote file, or null if not
+ *                     available
+ * @param etag         entity tag of the remote file, or null if not available
+ * @param sha256       SHA-256 hash of the file content in hexadecimal, or null
+ *                     if the file was not downloaded
+ */
+public record FileResult(Status status, Instant lastModified, String etag, String sha256) {
 
 	public FileResult(Instant lastModified) {
-		this(Status.OK, lastModified);
+		this(Status.OK, lastModified, null, null);
+	}
+
+	public FileResult(Instant lastModified, String etag) {
+		this(Status.OK, lastModified, etag, null);
+	}
+
+	public FileResult(Instant lastModified, String etag, String sha256) {
+		this(Status.OK, lastModified, etag, sha256);
 	}
 
 	public FileResult() {
-		this(Status.NOT_MODIFIED, null);
+		this(Status.NOT_MODIFIED, null, null, null);
 	}
 
 }
@@ -0,0 +1,42 @@
+package jkml.downloader.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+
+/**
+ * Handler of responses to HEAD requests, which provides the response headers
+ */
+class HeaderResponseHandler extends ResponseHandler<HttpResponse> {
+
+	private HttpResponse response;
+
+	@Override
+	protected boolean isValid(int code) {
+		return code == HttpStatus.SC_NOT_MODIFIED || code == HttpStatus.SC_OK;
+	}
+
+	@Override
+	protected void doStart(HttpResponse response, ContentType contentType) throws IOException {
+		this.response = response;
+	}
+
+	@Override
+	protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+		// Skip data processing
+	}
+
+	@Override
+	protected HttpResponse buildResult() {
+		return response;
+	}
+
+	@Override
+	public void releaseResources() {
+		// No resource requires release
+	}
+
+}
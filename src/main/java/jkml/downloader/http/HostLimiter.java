@@ -0,0 +1,260 @@
+package jkml.downloader.http;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+
+import jkml.downloader.util.PropertiesHelper;
+import jkml.downloader.util.StringUtils;
+
+/**
+ * Limits the number of in-flight requests to each host and enforces a minimum
+ * interval between the start of consecutive requests to the same host.
+ * Requests to different hosts do not affect each other. Only the host of the
+ * URI requested is limited: a redirect to another host is followed within the
+ * exchange, where the requests to that host are only bounded by the connection
+ * pool, which allows as many connections per route as requests per host.
+ */
+final class HostLimiter implements Closeable {
+
+	private final int maxRequests;
+
+	private final long minIntervalNanos;
+
+	private final Map<String, HostQueue> queues = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor(new DefaultThreadFactory("host", true));
+
+	/**
+	 * Futures of permits not handed over yet, which are failed on close
+	 */
+	private final Set<CompletableFuture<Permit>> pending = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean closed;
+
+	public HostLimiter(int maxRequests, Duration minInterval) {
+		if (maxRequests < 1) {
+			throw new IllegalArgumentException("Maximum number of requests must be positive: " + maxRequests);
+		}
+		this.maxRequests = maxRequests;
+		this.minIntervalNanos = minInterval.toNanos();
+	}
+
+	public static HostLimiter create(PropertiesHelper properties) {
+		return new HostLimiter(Integer.parseInt(properties.getRequired("host.max-requests")),
+				Duration.ofMillis(Long.parseLong(properties.getRequired("host.min-request-interval-ms"))));
+	}
+
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	static String getHost(URI uri) {
+		var host = uri.getHost();
+		return (host == null) ? StringUtils.EMPTY : host.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Request a slot for sending a request to the host of the URI. The returned
+	 * future completes when the request may be sent. The permit must be closed
+	 * when the exchange completes. The future fails if the limiter is closed
+	 * before the permit is handed over.
+	 */
+	public CompletableFuture<Permit> acquire(URI uri) {
+		var future = new CompletableFuture<Permit>();
+		pending.add(future);
+		future.whenComplete((r, e) -> pending.remove(future));
+		if (closed) {
+			future.completeExceptionally(createClosedException());
+			return future;
+		}
+		var queue = queues.computeIfAbsent(getHost(uri), HostQueue::new);
+		queue.enqueue(future);
+		return future;
+	}
+
+	private static IllegalStateException createClosedException() {
+		return new IllegalStateException("Host limiter is closed");
+	}
+
+	public List<HostStats> getStats() {
+		var result = new ArrayList<HostStats>(queues.size());
+		for (var queue : queues.values()) {
+			result.add(queue.getStats());
+		}
+		result.sort(Comparator.comparing(HostStats::host));
+		return result;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		scheduler.shutdownNow();
+		for (var future : List.copyOf(pending)) {
+			future.completeExceptionally(createClosedException());
+		}
+	}
+
+	/**
+	 * Grant to send one request to a host
+	 */
+	public static class Permit implements AutoCloseable {
+
+		private final HostQueue queue;
+
+		private final Duration waitTime;
+
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(HostQueue queue, Duration waitTime) {
+			this.queue = queue;
+			this.waitTime = waitTime;
+		}
+
+		public Duration getWaitTime() {
+			return waitTime;
+		}
+
+		@Override
+		public void close() {
+			if (released.compareAndSet(false, true)) {
+				queue.release();
+			}
+		}
+
+	}
+
+	private record Waiter(CompletableFuture<Permit> future, long enqueueTime) {
+	}
+
+	private final class HostQueue {
+
+		private final String host;
+
+		private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+		private int activeCount;
+
+		private long nextStartTime = System.nanoTime();
+
+		private long requestCount;
+
+		private long totalWaitNanos;
+
+		private long maxWaitNanos;
+
+		private HostQueue(String host) {
+			this.host = host;
+		}
+
+		private void enqueue(CompletableFuture<Permit> future) {
+			Runnable action = null;
+			var waiter = new Waiter(future, System.nanoTime());
+			synchronized (this) {
+				if (activeCount < maxRequests && waiters.isEmpty()) {
+					action = grant(waiter);
+				} else {
+					waiters.addLast(waiter);
+				}
+			}
+			if (action != null) {
+				action.run();
+			} else {
+				// Waiter giving up neither counts in the queue nor takes a start slot
+				future.whenComplete((r, e) -> {
+					if (e != null) {
+						remove(waiter);
+					}
+				});
+			}
+		}
+
+		private synchronized void remove(Waiter waiter) {
+			waiters.remove(waiter);
+		}
+
+		private void release() {
+			Runnable action = null;
+			synchronized (this) {
+				--activeCount;
+				var waiter = waiters.pollFirst();
+				// Skip waiters that gave up before they were removed
+				while (waiter != null && waiter.future().isDone()) {
+					waiter = waiters.pollFirst();
+				}
+				if (waiter != null) {
+					action = grant(waiter);
+				}
+			}
+			if (action != null) {
+				action.run();
+			}
+		}
+
+		/**
+		 * Reserve a slot for the waiter and return the action that hands over the
+		 * permit, which must run outside the lock as it may trigger dependent stages
+		 */
+		private Runnable grant(Waiter waiter) {
+			++activeCount;
+			++requestCount;
+
+			var now = System.nanoTime();
+			var startTime = Math.max(now, nextStartTime);
+			nextStartTime = startTime + minIntervalNanos;
+
+			var waitNanos = startTime - waiter.enqueueTime();
+			totalWaitNanos += waitNanos;
+			maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+
+			var permit = new Permit(this, Duration.ofNanos(waitNanos));
+			var delay = startTime - now;
+			if (delay <= 0) {
+				return () -> handOver(waiter, permit);
+			}
+			return () -> schedule(waiter, permit, delay);
+		}
+
+		private void schedule(Waiter waiter, Permit permit, long delay) {
+			try {
+				scheduler.schedule(() -> handOver(waiter, permit), delay, TimeUnit.NANOSECONDS);
+			} catch (RejectedExecutionException e) {
+				// Limiter has been closed
+				waiter.future().completeExceptionally(e);
+				permit.close();
+			}
+		}
+
+		private void handOver(Waiter waiter, Permit permit) {
+			// Return the slot if the caller has given up waiting
+			if (!waiter.future().complete(permit)) {
+				permit.close();
+			}
+		}
+
+		private synchronized HostStats getStats() {
+			return new HostStats(host, activeCount, waiters.size(), requestCount, Duration.ofNanos(totalWaitNanos),
+					Duration.ofNanos(maxWaitNanos));
+		}
+
+	}
+
+}
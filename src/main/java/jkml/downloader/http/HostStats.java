@@ -0,0 +1,17 @@
+package jkml.downloader.http;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the request scheduling state of a host.
+ *
+ * @param host          host name
+ * @param activeCount   number of requests in flight
+ * @param queueDepth    number of requests waiting for a slot
+ * @param requestCount  number of requests started so far
+ * @param totalWaitTime total time requests spent waiting for a slot
+ * @param maxWaitTime   longest time a request spent waiting for a slot
+ */
+public record HostStats(String host, int activeCount, int queueDepth, long requestCount, Duration totalWaitTime,
+		Duration maxWaitTime) {
+}
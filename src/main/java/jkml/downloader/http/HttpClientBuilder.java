@@ -15,6 +15,15 @@ class HttpClientBuilder {
 
 	private static final Timeout TIMEOUT = Timeout.ofSeconds(30);
 
+	private static final int MAX_CONNECTIONS = 64;
+
+	private int maxConnectionsPerRoute = 5;
+
+	public HttpClientBuilder setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
 	public CloseableHttpAsyncClient build() {
 		var connectionConfig = ConnectionConfig.custom()
 				.setConnectTimeout(TIMEOUT)
@@ -30,6 +39,8 @@ class HttpClientBuilder {
 		var connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
 				.setDefaultConnectionConfig(connectionConfig)
 				.setDefaultTlsConfig(tlsConfig)
+				.setMaxConnPerRoute(maxConnectionsPerRoute)
+				.setMaxConnTotal(MAX_CONNECTIONS)
 				.build();
 
 		var requestConfig = RequestConfig.custom()
@@ -3,14 +3,25 @@ package jkml.downloader.http;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
 
 import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpMessage;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.message.MessageSupport;
 
 class HttpUtils {
 
+	private static final String BYTES_UNIT = "bytes ";
+
+	static final String REPR_DIGEST = "Repr-Digest";
+
+	static final String DIGEST = "Digest";
+
+	private static final String SHA256_ALGORITHM = "sha-256";
+
 	private HttpUtils() {
 	}
 
@@ -28,6 +39,26 @@ class HttpUtils {
 		return (header == null) ? null : header.getValue();
 	}
 
+	/**
+	 * Get the first byte position in the Content-Range header, or -1 if the
+	 * header is absent or not a satisfied byte range.
+	 */
+	public static long getContentRangeStart(HttpMessage message) {
+		var value = getHeader(message, HttpHeaders.CONTENT_RANGE);
+		if (value == null || !value.startsWith(BYTES_UNIT)) {
+			return -1;
+		}
+		var index = value.indexOf('-', BYTES_UNIT.length());
+		if (index == -1) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(value.substring(BYTES_UNIT.length(), index).strip());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
 	public static String getParameter(HttpMessage message, String headerName, String parameterName) {
 		var header = message.getFirstHeader(headerName);
 		if (header == null) {
@@ -44,6 +75,71 @@ class HttpUtils {
 		return null;
 	}
 
+	/**
+	 * Get the value of the Content-Length header, or -1 if not available or not
+	 * valid
+	 */
+	public static long getContentLength(HttpMessage message) {
+		var value = getHeader(message, HttpHeaders.CONTENT_LENGTH);
+		if (value == null) {
+			return -1;
+		}
+		try {
+			var length = Long.parseLong(value);
+			return (length < 0) ? -1 : length;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Whether the content of the message has a content coding other than identity
+	 */
+	public static boolean isContentEncoded(HttpMessage message) {
+		var value = getHeader(message, HttpHeaders.CONTENT_ENCODING);
+		return value != null && !value.equalsIgnoreCase("identity");
+	}
+
+	/**
+	 * Get the SHA-256 digest of the content advertised in the Repr-Digest header,
+	 * or in the obsolete Digest header, in lowercase hexadecimal. Return null if
+	 * neither header has a valid SHA-256 digest.
+	 */
+	public static String getSha256Digest(HttpMessage message) {
+		var digest = getSha256Digest(message, REPR_DIGEST);
+		return (digest == null) ? getSha256Digest(message, DIGEST) : digest;
+	}
+
+	private static String getSha256Digest(HttpMessage message, String headerName) {
+		for (var header : message.getHeaders(headerName)) {
+			for (var member : header.getValue().split(",")) {
+				var index = member.indexOf('=');
+				if (index == -1 || !member.substring(0, index).strip().equalsIgnoreCase(SHA256_ALGORITHM)) {
+					continue;
+				}
+				// Repr-Digest encloses the value in colons as a byte sequence
+				var value = member.substring(index + 1).strip();
+				if (value.length() >= 2 && value.startsWith(":") && value.endsWith(":")) {
+					value = value.substring(1, value.length() - 1);
+				}
+				var digest = decodeSha256(value);
+				if (digest != null) {
+					return digest;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static String decodeSha256(String base64) {
+		try {
+			var bytes = Base64.getDecoder().decode(base64);
+			return (bytes.length == 32) ? HexFormat.of().formatHex(bytes) : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
 	public static URI getUri(HttpRequest request) {
 		try {
 			return request.getUri();
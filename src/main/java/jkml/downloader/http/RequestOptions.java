@@ -1,14 +1,47 @@
 package jkml.downloader.http;
 
 import java.time.Instant;
+import java.util.Objects;
 
+/**
+ * Options of a request. Those of a profile are read from its
+ * {@code requestOptions} field, while the transient fields hold the state of a
+ * single request, such as validators and byte ranges, and are never read from
+ * profiles.
+ */
 public class RequestOptions {
 
 	private UserAgent userAgent;
 
 	private Referer referer;
 
-	private Instant ifModifiedSince;
+	private String accept;
+
+	private transient String authorization;
+
+	private transient Instant ifModifiedSince;
+
+	private transient String ifNoneMatch;
+
+	private transient boolean unconditional;
+
+	private transient long rangeStart;
+
+	private transient long rangeEnd;
+
+	private transient String ifRange;
+
+	private int segmentCount;
+
+	private long segmentThreshold;
+
+	private transient String checksum;
+
+	private Durability durability;
+
+	private Boolean contentValidation;
+
+	private long minimumSize;
 
 	public UserAgent getUserAgent() {
 		return userAgent;
@@ -26,6 +59,29 @@ public class RequestOptions {
 		this.referer = referer;
 	}
 
+	/**
+	 * Media types accepted in the response, sent in the Accept header, or null
+	 * to accept any
+	 */
+	public String getAccept() {
+		return accept;
+	}
+
+	public void setAccept(String accept) {
+		this.accept = accept;
+	}
+
+	/**
+	 * Credentials sent in the Authorization header, or null to send none
+	 */
+	public String getAuthorization() {
+		return authorization;
+	}
+
+	public void setAuthorization(String authorization) {
+		this.authorization = authorization;
+	}
+
 	public Instant getIfModifiedSince() {
 		return ifModifiedSince;
 	}
@@ -34,6 +90,131 @@ public class RequestOptions {
 		this.ifModifiedSince = ifModifiedSince;
 	}
 
+	/**
+	 * Entity tag of the local copy of the content, sent in the If-None-Match
+	 * header
+	 */
+	public String getIfNoneMatch() {
+		return ifNoneMatch;
+	}
+
+	public void setIfNoneMatch(String ifNoneMatch) {
+		this.ifNoneMatch = ifNoneMatch;
+	}
+
+	/**
+	 * Whether a file is downloaded without checking if the local copy is up to
+	 * date
+	 */
+	public boolean isUnconditional() {
+		return unconditional;
+	}
+
+	public void setUnconditional(boolean unconditional) {
+		this.unconditional = unconditional;
+	}
+
+	/**
+	 * Position of the first byte requested, or 0 to request the whole content
+	 */
+	public long getRangeStart() {
+		return rangeStart;
+	}
+
+	public void setRangeStart(long rangeStart) {
+		this.rangeStart = rangeStart;
+	}
+
+	/**
+	 * Position of the last byte requested, or 0 to request up to the end of the
+	 * content
+	 */
+	public long getRangeEnd() {
+		return rangeEnd;
+	}
+
+	public void setRangeEnd(long rangeEnd) {
+		this.rangeEnd = rangeEnd;
+	}
+
+	public String getIfRange() {
+		return ifRange;
+	}
+
+	public void setIfRange(String ifRange) {
+		this.ifRange = ifRange;
+	}
+
+	/**
+	 * Number of byte ranges of a file downloaded concurrently if the server
+	 * supports byte ranges. Values below 2 disable segmented download.
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	public void setSegmentCount(int segmentCount) {
+		this.segmentCount = segmentCount;
+	}
+
+	/**
+	 * Minimum file size in bytes for segmented download, or 0 for the default
+	 */
+	public long getSegmentThreshold() {
+		return segmentThreshold;
+	}
+
+	public void setSegmentThreshold(long segmentThreshold) {
+		this.segmentThreshold = segmentThreshold;
+	}
+
+	/**
+	 * Expected SHA-256 hash of a downloaded file in hexadecimal, or null if the
+	 * file is not verified
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	/**
+	 * How far a downloaded file is written to storage before it is considered
+	 * saved
+	 */
+	public Durability getDurability() {
+		return Objects.requireNonNullElse(durability, Durability.NONE);
+	}
+
+	public void setDurability(Durability durability) {
+		this.durability = durability;
+	}
+
+	/**
+	 * Whether a downloaded file is rejected when its content does not look like
+	 * its file name suggests, such as a web page received for an archive
+	 */
+	public boolean isContentValidation() {
+		return !Boolean.FALSE.equals(contentValidation);
+	}
+
+	public void setContentValidation(boolean contentValidation) {
+		this.contentValidation = contentValidation;
+	}
+
+	/**
+	 * Minimum size in bytes of a downloaded file, or 0 for no minimum
+	 */
+	public long getMinimumSize() {
+		return minimumSize;
+	}
+
+	public void setMinimumSize(long minimumSize) {
+		this.minimumSize = minimumSize;
+	}
+
 	public static RequestOptions copy(RequestOptions original) {
 		if (original == null) {
 			return null;
@@ -41,7 +222,20 @@ public class RequestOptions {
 		var copy = new RequestOptions();
 		copy.userAgent = original.userAgent;
 		copy.referer = original.referer;
+		copy.accept = original.accept;
+		copy.authorization = original.authorization;
 		copy.ifModifiedSince = original.ifModifiedSince;
+		copy.ifNoneMatch = original.ifNoneMatch;
+		copy.unconditional = original.unconditional;
+		copy.rangeStart = original.rangeStart;
+		copy.rangeEnd = original.rangeEnd;
+		copy.ifRange = original.ifRange;
+		copy.segmentCount = original.segmentCount;
+		copy.segmentThreshold = original.segmentThreshold;
+		copy.checksum = original.checksum;
+		copy.durability = original.durability;
+		copy.contentValidation = original.contentValidation;
+		copy.minimumSize = original.minimumSize;
 		return copy;
 	}
 
@@ -7,8 +7,23 @@ class ResponseException extends RuntimeException {
 	@Serial
 	private static final long serialVersionUID = 1L;
 
+	private final int statusCode;
+
 	public ResponseException(String message) {
+		this(message, 0);
+	}
+
+	public ResponseException(String message, int statusCode) {
 		super(message);
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * Status code of the response rejected, or 0 if the response was not
+	 * rejected for its status
+	 */
+	public int getStatusCode() {
+		return statusCode;
 	}
 
 }
@@ -9,6 +9,21 @@ import org.apache.hc.core5.http.HttpStatus;
 
 abstract class ResponseHandler<T> extends AbstractBinResponseConsumer<T> {
 
+	/**
+	 * Thrown to abort the exchange when the handler needs no more of the body
+	 */
+	static class StopException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		StopException() {
+			super("Response handler stopped receiving content");
+		}
+
+	}
+
+	private volatile boolean stopped;
+
 	@Override
 	protected final int capacityIncrement() {
 		return Integer.MAX_VALUE;
@@ -17,7 +32,7 @@ abstract class ResponseHandler<T> extends AbstractBinResponseConsumer<T> {
 	@Override
 	protected final void start(HttpResponse response, ContentType contentType) throws IOException {
 		if (!isValid(response.getCode())) {
-			throw new ResponseException("Unexpected status code: " + response.getCode());
+			throw new ResponseException("Unexpected status code: " + response.getCode(), response.getCode());
 		}
 		doStart(response, contentType);
 	}
@@ -28,4 +43,27 @@ abstract class ResponseHandler<T> extends AbstractBinResponseConsumer<T> {
 
 	protected abstract void doStart(HttpResponse response, ContentType contentType) throws IOException;
 
+	/**
+	 * Stop receiving the response body. The exchange is aborted and the result
+	 * is built from the content received so far.
+	 */
+	protected final void stop() throws StopException {
+		stopped = true;
+		throw new StopException();
+	}
+
+	/**
+	 * Whether the handler stopped receiving the response body before its end
+	 */
+	boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Build the result from the content received before the handler stopped
+	 */
+	T getStoppedResult() {
+		return buildResult();
+	}
+
 }
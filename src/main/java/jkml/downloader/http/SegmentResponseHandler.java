@@ -0,0 +1,110 @@
+package jkml.downloader.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+
+/**
+ * Handler of responses to requests for one byte range of a file, which writes
+ * the content at its position in a shared file channel
+ */
+class SegmentResponseHandler extends ResponseHandler<Long> {
+
+	private final CoalescingWriter writer;
+
+	private final long start;
+
+	private final long end;
+
+	private final CompletableFuture<Void> released = new CompletableFuture<>();
+
+	private long position;
+
+	private boolean rangeUnsupported;
+
+	/**
+	 * @param start      position of the first byte of the range
+	 * @param end        position of the last byte of the range
+	 * @param bufferPool pool of buffers in which content is gathered before it is
+	 *                   written, or null to write content as received
+	 */
+	public SegmentResponseHandler(FileChannel channel, long start, long end, WriteBufferPool bufferPool) {
+		this.writer = new CoalescingWriter(channel, start, bufferPool);
+		this.start = start;
+		this.end = end;
+		this.position = start;
+	}
+
+	/**
+	 * Whether the response was not the requested range, as when the server
+	 * ignores the Range header, so that retrying the segment is pointless. It is
+	 * only read once the exchange has completed.
+	 */
+	boolean isRangeUnsupported() {
+		return rangeUnsupported;
+	}
+
+	/**
+	 * Get the future completed once the handler has released its resources,
+	 * after which it no longer writes to the file
+	 */
+	CompletableFuture<Void> getReleased() {
+		return released;
+	}
+
+	@Override
+	protected boolean isValid(int code) {
+		if (code != HttpStatus.SC_PARTIAL_CONTENT) {
+			rangeUnsupported = true;
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	protected void doStart(HttpResponse response, ContentType contentType) throws IOException {
+		if (HttpUtils.getContentRangeStart(response) != start) {
+			rangeUnsupported = true;
+			throw new ResponseException("Unexpected %s header: %s".formatted(HttpHeaders.CONTENT_RANGE,
+					HttpUtils.getHeader(response, HttpHeaders.CONTENT_RANGE)));
+		}
+	}
+
+	@Override
+	protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+		if (position + src.remaining() > end + 1) {
+			rangeUnsupported = true;
+			throw new ResponseException("Segment content exceeds range: %d-%d".formatted(start, end));
+		}
+
+		position += src.remaining();
+		writer.write(src);
+
+		if (endOfStream) {
+			if (position != end + 1) {
+				throw new ResponseException("Incomplete segment content: %d-%d".formatted(start, end));
+			}
+			writer.flush();
+			writer.release();
+		}
+	}
+
+	@Override
+	protected Long buildResult() {
+		return position - start;
+	}
+
+	@Override
+	public void releaseResources() {
+		// Channel is shared by all segments and closed by the owner
+		writer.release();
+		released.complete(null);
+	}
+
+}
@@ -0,0 +1,173 @@
+package jkml.downloader.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jkml.downloader.util.FileUtils;
+
+/**
+ * Download of a file in byte ranges fetched concurrently and written at their
+ * positions in a preallocated partial file
+ */
+class SegmentedDownload {
+
+	public record Segment(long start, long end) {
+
+		public long length() {
+			return end - start + 1;
+		}
+
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(SegmentedDownload.class);
+
+	private final Path path;
+
+	private final Path tmpPath;
+
+	private final long length;
+
+	private final Instant lastModified;
+
+	private final String etag;
+
+	private final String validator;
+
+	private final String checksum;
+
+	private final Durability durability;
+
+	private FileChannel channel;
+
+	private SegmentedDownload(URI uri, Path path, long length, HttpResponse response, String validator,
+			String checksum, Durability durability) {
+		this.path = path;
+		this.tmpPath = FileResponseHandler.getPartialPath(uri, path);
+		this.length = length;
+		this.lastModified = HttpUtils.getTimeHeader(response, HttpHeaders.LAST_MODIFIED);
+		this.etag = HttpUtils.getHeader(response, HttpHeaders.ETAG);
+		this.validator = validator;
+		this.checksum = checksum;
+		this.durability = durability;
+	}
+
+	/**
+	 * Create a segmented download from the response to a HEAD request, or return
+	 * null if the server does not support byte ranges or the file is too small
+	 *
+	 * @param checksum   expected SHA-256 hash of the file content in hexadecimal,
+	 *                   or null if not verified
+	 * @param durability how far the file is written to storage before it is
+	 *                   considered saved
+	 */
+	public static SegmentedDownload create(URI uri, Path path, HttpResponse response, long threshold,
+			String checksum, Durability durability) throws IOException {
+		var acceptRanges = HttpUtils.getHeader(response, HttpHeaders.ACCEPT_RANGES);
+		if (acceptRanges == null || !acceptRanges.toLowerCase(Locale.ROOT).contains("bytes")) {
+			return null;
+		}
+
+		var length = HttpUtils.getContentLength(response);
+		if (length < threshold || length < 2) {
+			return null;
+		}
+
+		// Segments must be requested against the same version of the remote file
+		var validator = FileResponseHandler.getValidator(response);
+		if (validator == null) {
+			return null;
+		}
+
+		FileResponseHandler.checkFileName(FileUtils.getFileName(uri), response);
+		// Length is known so the size of the file is checked before any segment is received
+		if (Files.exists(path)) {
+			FileResponseHandler.checkFileSize(length, Files.size(path), path);
+		}
+		return new SegmentedDownload(uri, path, length, response, validator, checksum, durability);
+	}
+
+	static List<Segment> split(long length, int count) {
+		var segmentCount = (int) Math.min(count, length);
+		var result = new ArrayList<Segment>(segmentCount);
+		for (var i = 0; i < segmentCount; ++i) {
+			var start = length * i / segmentCount;
+			var end = length * (i + 1) / segmentCount - 1;
+			result.add(new Segment(start, end));
+		}
+		return result;
+	}
+
+	public String getValidator() {
+		return validator;
+	}
+
+	/**
+	 * Create the partial file with the full size of the remote file
+	 */
+	public void open() throws IOException {
+		// A partial file with holes cannot be resumed
+		Files.deleteIfExists(FileResponseHandler.getValidatorPath(tmpPath));
+
+		channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		channel.write(ByteBuffer.allocate(1), length - 1);
+	}
+
+	public List<Segment> getSegments(int count) {
+		var segments = split(length, count);
+		logger.info("Saving remote file content in {} segments", segments.size());
+		return segments;
+	}
+
+	public SegmentResponseHandler createHandler(Segment segment, WriteBufferPool bufferPool) {
+		return new SegmentResponseHandler(channel, segment.start(), segment.end(), bufferPool);
+	}
+
+	/**
+	 * Close the partial file and replace the file with it
+	 *
+	 * @param byteCount total number of bytes received in all segments
+	 */
+	public FileResult complete(long byteCount) throws IOException {
+		channel.close();
+		if (byteCount != length) {
+			throw new ResponseException("Incomplete file content: %d of %d bytes".formatted(byteCount, length));
+		}
+		logger.info("Finished saving remote file content");
+
+		// Segments arrive out of order so the file is hashed once complete
+		var digest = FileResponseHandler.createDigest();
+		FileResponseHandler.updateDigest(digest, tmpPath);
+		var sha256 = FileResponseHandler.verify(tmpPath, digest, checksum);
+
+		FileResponseHandler.completeFile(tmpPath, path, lastModified, etag, durability);
+		return new FileResult(lastModified, etag, sha256);
+	}
+
+	/**
+	 * Close and delete the partial file
+	 */
+	public void abort() {
+		try {
+			channel.close();
+			Files.deleteIfExists(tmpPath);
+		} catch (IOException e) {
+			logger.error("Failed to delete partial file", e);
+		}
+	}
+
+}
@@ -2,46 +2,144 @@ package jkml.downloader.http;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.function.Predicate;
 
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpResponse;
-import org.apache.hc.core5.util.ByteArrayBuffer;
+import org.apache.hc.core5.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Based on org.apache.hc.client5.http.async.methods.SimpleAsyncEntityConsumer
+ * Decodes the response body as it arrives. If a stop condition is given, it is
+ * evaluated on the text received so far each time the text has doubled in
+ * length, and the rest of the body is not received once it holds.
  */
-class TextResponseHandler extends ResponseHandler<String> {
+class TextResponseHandler extends ResponseHandler<TextResult> {
+
+	private static final int MAX_INITIAL_CAPACITY = 1024 * 1024;
+
+	/**
+	 * Initial capacity of the text when the length of the body is not known
+	 */
+	private static final int DEFAULT_INITIAL_CAPACITY = 64 * 1024;
+
+	private static final int MIN_CHECK_LENGTH = 16 * 1024;
 
 	private final Logger logger = LoggerFactory.getLogger(TextResponseHandler.class);
 
-	private Charset charset = StandardCharsets.UTF_8;
+	private final Predicate<CharSequence> stopCondition;
+
+	private final CharBuffer chars = CharBuffer.allocate(8192);
+
+	private final ByteBuffer pending = ByteBuffer.allocate(16);
+
+	private CharsetDecoder decoder;
+
+	private StringBuilder text;
+
+	private int nextCheckLength = MIN_CHECK_LENGTH;
 
-	private ByteArrayBuffer buffer;
+	private String etag;
+
+	private Instant lastModified;
+
+	public TextResponseHandler() {
+		this(null);
+	}
+
+	/**
+	 * @param stopCondition condition on the text received so far under which the
+	 *                      rest of the body is not needed, or null to receive the
+	 *                      whole body
+	 */
+	public TextResponseHandler(Predicate<CharSequence> stopCondition) {
+		this.stopCondition = stopCondition;
+	}
+
+	@Override
+	protected boolean isValid(int code) {
+		return code == HttpStatus.SC_OK || code == HttpStatus.SC_NOT_MODIFIED;
+	}
 
 	@Override
 	protected void doStart(HttpResponse response, ContentType contentType) throws IOException {
+		if (response.getCode() == HttpStatus.SC_NOT_MODIFIED) {
+			logger.info("Remote content not modified");
+			return;
+		}
+		etag = HttpUtils.getHeader(response, HttpHeaders.ETAG);
+		lastModified = HttpUtils.getTimeHeader(response, HttpHeaders.LAST_MODIFIED);
+		var charset = StandardCharsets.UTF_8;
 		if (contentType != null) {
 			charset = contentType.getCharset(charset);
 		}
-		var header = HttpUtils.getHeader(response, HttpHeaders.CONTENT_LENGTH);
-		var capacity = (header == null) ? 65536 : Integer.parseInt(header);
-		buffer = new ByteArrayBuffer(capacity);
+		decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		// Length is -1 if the header is absent or invalid
+		var length = HttpUtils.getContentLength(response);
+		var capacity = (length < 0) ? DEFAULT_INITIAL_CAPACITY : (int) Math.min(length, MAX_INITIAL_CAPACITY);
+		text = new StringBuilder(capacity);
 	}
 
 	@Override
 	protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
-		buffer.append(src);
+		if (text == null) {
+			return;
+		}
+
+		// Complete the character split across the previous and this chunk
+		while (pending.position() > 0 && src.hasRemaining()) {
+			pending.put(src.get()).flip();
+			decode(pending, false);
+			pending.compact();
+		}
+
+		decode(src, false);
+		pending.put(src);
+
+		if (endOfStream) {
+			decode(pending.flip(), true);
+			decoder.flush(chars);
+			append();
+			return;
+		}
+
+		if (stopCondition != null && text.length() >= nextCheckLength) {
+			nextCheckLength = text.length() * 2;
+			if (stopCondition.test(text)) {
+				logger.info("Stopped receiving content after {} characters", text.length());
+				stop();
+			}
+		}
+	}
+
+	private void decode(ByteBuffer in, boolean endOfInput) {
+		while (decoder.decode(in, chars, endOfInput).isOverflow()) {
+			append();
+		}
+		append();
+	}
+
+	private void append() {
+		text.append(chars.flip());
+		chars.clear();
 	}
 
 	@Override
-	protected String buildResult() {
-		logger.info("Content length: {}", buffer.length());
-		return new String(buffer.toByteArray(), charset);
+	protected TextResult buildResult() {
+		if (text == null) {
+			return new TextResult();
+		}
+		logger.info("Content length: {}", text.length());
+		return new TextResult(Status.OK, text.toString(), etag, lastModified, isStopped());
 	}
 
 	@Override
@@ -0,0 +1,26 @@
+package jkml.downloader.http;
+
+import java.time.Instant;
+
+/**
+ * Outcome of a text retrieval.
+ *
+ * @param status       whether the text was retrieved or is unchanged
+ * @param text         response body, or null if not modified
+ * @param etag         entity tag of the content, or null if not available
+ * @param lastModified last modified time of the content, or null if not
+ *                     available
+ * @param partial      whether the text is only the beginning of the response
+ *                     body as retrieval stopped early
+ */
+public record TextResult(Status status, String text, String etag, Instant lastModified, boolean partial) {
+
+	public TextResult(String text, String etag, Instant lastModified) {
+		this(Status.OK, text, etag, lastModified, false);
+	}
+
+	public TextResult() {
+		this(Status.NOT_MODIFIED, null, null, null, false);
+	}
+
+}
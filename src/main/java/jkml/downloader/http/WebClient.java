@@ -5,35 +5,104 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.DefaultThreadFactory;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.message.BasicHeader;
 import org.apache.hc.core5.http.message.BasicHttpRequest;
 import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import jkml.downloader.http.HostLimiter.Permit;
+import jkml.downloader.http.SegmentedDownload.Segment;
 import jkml.downloader.util.LangUtils;
+import jkml.downloader.util.PropertiesHelper;
 import jkml.downloader.util.TimeUtils;
 
 public class WebClient implements Closeable {
 
 	public static final UserAgent DEFAULT_USER_AGENT = UserAgent.CHROME;
 
+	public static final long DEFAULT_SEGMENT_THRESHOLD = 16L * 1024 * 1024;
+
+	/**
+	 * Maximum number of requests for a segment whose transfer fails
+	 */
+	static final int MAX_SEGMENT_ATTEMPTS = 3;
+
 	private final Logger logger = LoggerFactory.getLogger(WebClient.class);
 
+	private final HostLimiter hostLimiter;
+
 	private final CloseableHttpAsyncClient httpClient;
 
+	private final WriteBufferPool bufferPool;
+
+	/**
+	 * Runs the file work that completes downloads, such as hashing, syncing and
+	 * moving files, so that it does not hold up the I/O threads of the HTTP client
+	 */
+	private final ExecutorService fileExecutor = Executors.newCachedThreadPool(new DefaultThreadFactory("file", true));
+
+	private volatile ContentStore contentStore;
+
+	private volatile List<ContentValidator> contentValidators = List.of();
+
 	public WebClient() {
-		httpClient = new HttpClientBuilder().build();
+		this(PropertiesHelper.create("http.properties"));
+	}
+
+	private WebClient(PropertiesHelper properties) {
+		this(HostLimiter.create(properties), WriteBufferPool.create(properties));
+	}
+
+	WebClient(HostLimiter hostLimiter, WriteBufferPool bufferPool) {
+		this.hostLimiter = hostLimiter;
+		this.bufferPool = bufferPool;
+		httpClient = new HttpClientBuilder().setMaxConnectionsPerRoute(hostLimiter.getMaxRequests()).build();
 		httpClient.start();
 	}
 
+	/**
+	 * Set the store of content that is not transferred again when a response
+	 * advertises its SHA-256 digest, or null to transfer all content
+	 */
+	public void setContentStore(ContentStore contentStore) {
+		this.contentStore = contentStore;
+	}
+
+	/**
+	 * Set the validators applied to the content of every file in addition to
+	 * those selected by the request options
+	 */
+	public void setContentValidators(List<ContentValidator> contentValidators) {
+		this.contentValidators = List.copyOf(contentValidators);
+	}
+
 	@Override
 	public void close() {
 		try {
@@ -41,19 +110,54 @@ public class WebClient implements Closeable {
 		} catch (IOException e) {
 			logger.error("Failed to close HTTP client", e);
 		}
+		fileExecutor.shutdown();
+		for (var stats : hostLimiter.getStats()) {
+			logger.atDebug().log("Host {}: {} requests, total wait {} ms, max wait {} ms", stats.host(),
+					stats.requestCount(), stats.totalWaitTime().toMillis(), stats.maxWaitTime().toMillis());
+		}
+		hostLimiter.close();
+		var writeStats = bufferPool.getStats();
+		logger.atDebug().log("File writes: {} bytes in {} writes, {} of {} buffers allocated", writeStats.byteCount(),
+				writeStats.writeCount(), writeStats.allocatedCount(), writeStats.maxCount());
+	}
+
+	/**
+	 * Get the request scheduling state of each host contacted so far.
+	 */
+	public List<HostStats> getHostStats() {
+		return hostLimiter.getStats();
+	}
+
+	/**
+	 * Get the statistics of the writes of downloaded content to files and of the
+	 * buffers used for them
+	 */
+	public WriteStats getWriteStats() {
+		return bufferPool.getStats();
 	}
 
 	HttpRequest createRequest(URI uri, RequestOptions options) {
-		var request = new BasicHttpRequest(Method.GET, uri);
+		return createRequest(Method.GET, uri, options);
+	}
+
+	HttpRequest createRequest(Method method, URI uri, RequestOptions options) {
+		var request = new BasicHttpRequest(method, uri);
 
 		// Set User-Agent header
 		var userAgent = options.getUserAgent();
 		request.setHeader(Headers.userAgent((userAgent == null) ? DEFAULT_USER_AGENT : userAgent));
 
 		// Set Accept and Accept-Language headers
-		request.setHeader(Headers.ACCEPT);
+		var accept = options.getAccept();
+		request.setHeader((accept == null) ? Headers.ACCEPT : new BasicHeader(HttpHeaders.ACCEPT, accept));
 		request.setHeader(Headers.ACCEPT_LANGUAGE);
 
+		// Set Authorization header
+		var authorization = options.getAuthorization();
+		if (authorization != null) {
+			request.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+		}
+
 		// Set Referer header
 		if (options.getReferer() == Referer.SELF) {
 			// Get the URI from the request as BasicHttpRequest re-assembles it
@@ -66,17 +170,167 @@ public class WebClient implements Closeable {
 			HttpUtils.setTimeHeader(request, HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
 		}
 
+		// Set If-None-Match header
+		var ifNoneMatch = options.getIfNoneMatch();
+		if (ifNoneMatch != null) {
+			request.setHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+
+		// Set Range and If-Range headers
+		var rangeStart = options.getRangeStart();
+		var rangeEnd = options.getRangeEnd();
+		if (rangeStart > 0 || rangeEnd > 0) {
+			request.setHeader(HttpHeaders.RANGE, "bytes=" + rangeStart + "-" + ((rangeEnd > 0) ? rangeEnd : ""));
+			var ifRange = options.getIfRange();
+			if (ifRange != null) {
+				request.setHeader(HttpHeaders.IF_RANGE, ifRange);
+			}
+		}
+
 		return request;
 	}
 
-	private <T> T execute(HttpRequest request, HttpContext context, ResponseHandler<T> responseHandler) throws WebClientException {
-		logger.info("Sending request to {}", HttpUtils.getUri(request));
+	/**
+	 * Send the request once the host has a request slot. The resources of the
+	 * response handler are released whether or not the request is sent.
+	 */
+	private <T> CompletableFuture<T> execute(HttpRequest request, HttpContext context, ResponseHandler<T> responseHandler) {
+		var uri = HttpUtils.getUri(request);
+		var result = new CompletableFuture<T>();
+		var permitFuture = hostLimiter.acquire(uri);
+
+		// Permit is handed over on another thread, which logs for the caller
+		var contextMap = MDC.getCopyOfContextMap();
+
+		// Stop waiting for a request slot if the caller has cancelled the request
+		result.whenComplete((r, e) -> permitFuture.cancel(false));
+
+		permitFuture.whenComplete((permit, ex) -> runWithContext(contextMap, () -> {
+			if (ex != null) {
+				responseHandler.releaseResources();
+				result.completeExceptionally(new WebClientException(LangUtils.getRootCause(ex).toString()));
+				return;
+			}
+			if (result.isDone()) {
+				permit.close();
+				responseHandler.releaseResources();
+				return;
+			}
+			if (permit.getWaitTime().toMillis() > 0) {
+				logger.atDebug().log("Waited {} ms for a request slot", permit.getWaitTime().toMillis());
+			}
+			logger.info("Sending request to {}", uri);
+			try {
+				var future = httpClient.execute(new BasicRequestProducer(request, null), responseHandler, context,
+						new ResultCallback<>(result, permit, responseHandler, contextMap));
+				result.whenComplete((r, e) -> {
+					if (result.isCancelled()) {
+						future.cancel(true);
+					}
+				});
+			} catch (RuntimeException e) {
+				permit.close();
+				responseHandler.releaseResources();
+				result.completeExceptionally(e);
+			}
+		}));
+
+		return result;
+	}
+
+	/**
+	 * Run the action with the diagnostic context of the thread that started the
+	 * request, and restore the context of the current thread afterwards
+	 */
+	private static void runWithContext(Map<String, String> contextMap, Runnable action) {
+		var previous = MDC.getCopyOfContextMap();
+		setContextMap(contextMap);
+		try {
+			action.run();
+		} finally {
+			setContextMap(previous);
+		}
+	}
+
+	private static void setContextMap(Map<String, String> contextMap) {
+		if (contextMap == null) {
+			MDC.clear();
+		} else {
+			MDC.setContextMap(contextMap);
+		}
+	}
+
+	/**
+	 * Forwards the outcome of an exchange to a CompletableFuture and returns the
+	 * request slot of the host
+	 */
+	private class ResultCallback<T> implements FutureCallback<T> {
+
+		private final CompletableFuture<T> result;
+
+		private final Permit permit;
+
+		private final ResponseHandler<T> responseHandler;
+
+		private final Map<String, String> contextMap;
+
+		ResultCallback(CompletableFuture<T> result, Permit permit, ResponseHandler<T> responseHandler,
+				Map<String, String> contextMap) {
+			this.result = result;
+			this.permit = permit;
+			this.responseHandler = responseHandler;
+			this.contextMap = contextMap;
+		}
+
+		@Override
+		public void completed(T value) {
+			permit.close();
+			result.complete(value);
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			permit.close();
+			if (responseHandler.isStopped()) {
+				// Handler has what it needs and aborted the exchange on purpose
+				result.complete(responseHandler.getStoppedResult());
+				return;
+			}
+			runWithContext(contextMap, () -> logger.error("Exception occurred during execution", ex));
+			result.completeExceptionally(toWebClientException(ex));
+		}
+
+		@Override
+		public void cancelled() {
+			permit.close();
+			result.cancel(false);
+		}
+
+	}
+
+	private static WebClientException toWebClientException(Throwable ex) {
+		var cause = LangUtils.getRootCause(ex);
+		var statusCode = (cause instanceof ResponseException responseException) ? responseException.getStatusCode() : 0;
+		return new WebClientException(cause.toString(), statusCode);
+	}
+
+	/**
+	 * Get the executor of the file work of a download, which logs with the
+	 * diagnostic context of the calling thread
+	 */
+	private Executor getFileExecutor() {
+		var contextMap = MDC.getCopyOfContextMap();
+		return command -> fileExecutor.execute(() -> runWithContext(contextMap, command));
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws WebClientException {
 		try {
-			return LangUtils.getUninterruptibly(httpClient.execute(new BasicRequestProducer(request, null), responseHandler, context, null));
+			return LangUtils.getUninterruptibly(future);
 		} catch (ExecutionException e) {
-			logger.error("Exception occurred during execution", e);
-			var cause = LangUtils.getRootCause(e);
-			throw new WebClientException(cause.toString());
+			if (e.getCause() instanceof WebClientException webClientException) {
+				throw webClientException;
+			}
+			throw new WebClientException(LangUtils.getRootCause(e).toString());
 		}
 	}
 
@@ -84,32 +338,369 @@ public class WebClient implements Closeable {
 	 * Retrieve the response body as a String.
 	 */
 	public String getContent(URI uri, RequestOptions options) throws WebClientException {
-		return execute(createRequest(uri, options), null, new TextResponseHandler());
+		return await(getContentAsync(uri, options));
 	}
 
 	/**
-	 * Retrieve the response body and save it to file.
+	 * Retrieve the response body as a String without blocking. The future
+	 * completes exceptionally with {@link WebClientException} on failure.
 	 */
-	public FileResult saveToFile(URI uri, RequestOptions options, Path path) throws IOException, WebClientException {
+	public CompletableFuture<String> getContentAsync(URI uri, RequestOptions options) {
+		return getContentAsync(uri, options, null);
+	}
+
+	/**
+	 * Retrieve the response body as a String, stopping as soon as the text
+	 * received so far satisfies the stop condition. The returned text may then be
+	 * a prefix of the body.
+	 */
+	public String getContent(URI uri, RequestOptions options, Predicate<CharSequence> stopCondition)
+			throws WebClientException {
+		return await(getContentAsync(uri, options, stopCondition));
+	}
+
+	/**
+	 * Retrieve the response body as a String without blocking, stopping as soon
+	 * as the text received so far satisfies the stop condition. The future
+	 * completes exceptionally with {@link WebClientException} on failure.
+	 */
+	public CompletableFuture<String> getContentAsync(URI uri, RequestOptions options,
+			Predicate<CharSequence> stopCondition) {
+		return getConditionalContentAsync(uri, options, stopCondition).thenApply(TextResult::text);
+	}
+
+	/**
+	 * Retrieve the response body as a String along with its validators. The
+	 * If-None-Match and If-Modified-Since headers from the options make the
+	 * request conditional, in which case the result may indicate that the
+	 * content has not been modified.
+	 */
+	public TextResult getConditionalContent(URI uri, RequestOptions options) throws WebClientException {
+		return await(getConditionalContentAsync(uri, options, null));
+	}
+
+	/**
+	 * Conditionally retrieve the response body as a String along with its
+	 * validators, stopping as soon as the text received so far satisfies the stop
+	 * condition.
+	 */
+	public TextResult getConditionalContent(URI uri, RequestOptions options, Predicate<CharSequence> stopCondition)
+			throws WebClientException {
+		return await(getConditionalContentAsync(uri, options, stopCondition));
+	}
+
+	/**
+	 * Retrieve the response body as a String along with its validators without
+	 * blocking. The future completes exceptionally with
+	 * {@link WebClientException} on failure.
+	 */
+	public CompletableFuture<TextResult> getConditionalContentAsync(URI uri, RequestOptions options) {
+		return getConditionalContentAsync(uri, options, null);
+	}
+
+	private CompletableFuture<TextResult> getConditionalContentAsync(URI uri, RequestOptions options,
+			Predicate<CharSequence> stopCondition) {
+		return execute(createRequest(uri, options), null, new TextResponseHandler(stopCondition));
+	}
+
+	private void prepareFile(URI uri, RequestOptions options, Path path) throws IOException {
 		if (Files.notExists(path)) {
 			logger.debug("Local file does not exist: {}", path);
 			var dir = path.getParent();
 			if (dir != null) {
 				Files.createDirectories(dir);
 			}
+		} else if (options.isUnconditional()) {
+			logger.debug("Local file exists but is replaced unconditionally: {}", path);
+			options.setIfModifiedSince(null);
+			options.setIfNoneMatch(null);
+		} else if (options.getIfModifiedSince() != null || options.getIfNoneMatch() != null) {
+			logger.debug("Local file exists and validators are given: {}", path);
 		} else {
 			logger.debug("Local file exists: {}", path);
 			var lastModified = Files.getLastModifiedTime(path).toInstant();
 			logger.atDebug().log("Local file last modified time: {}", TimeUtils.format(lastModified));
 			options.setIfModifiedSince(lastModified);
+
+			var etagPath = FileResponseHandler.getETagPath(path);
+			if (Files.exists(etagPath)) {
+				var etag = Files.readString(etagPath).strip();
+				logger.debug("Local file entity tag: {}", etag);
+				options.setIfNoneMatch(etag);
+			}
+		}
+
+		// Resume from partial file left by an interrupted transfer
+		var partialPath = FileResponseHandler.getPartialPath(uri, path);
+		var validatorPath = FileResponseHandler.getValidatorPath(partialPath);
+		if (Files.exists(partialPath) && Files.exists(validatorPath)) {
+			var size = Files.size(partialPath);
+			if (size > 0) {
+				logger.debug("Partial file size: {}", size);
+				options.setRangeStart(size);
+				options.setIfRange(Files.readString(validatorPath).strip());
+			}
+		}
+	}
+
+	private CompletableFuture<FileResult> download(URI uri, RequestOptions options, Path path) {
+		var executor = getFileExecutor();
+		if (options.getSegmentCount() > 1 && options.getRangeStart() == 0) {
+			return downloadInSegments(uri, options, path, executor);
+		}
+		return downloadWhole(uri, options, path, contentStore, executor);
+	}
+
+	private List<ContentValidator> getContentValidators(RequestOptions options, Path path) {
+		var result = new ArrayList<ContentValidator>();
+		if (options.isContentValidation()) {
+			result.addAll(ContentValidators.create(String.valueOf(path.getFileName())));
+		}
+		if (options.getMinimumSize() > 0) {
+			result.add(ContentValidators.minimumSize(options.getMinimumSize()));
+		}
+		result.addAll(contentValidators);
+		return result;
+	}
+
+	/**
+	 * Download the file in one piece and complete it on the file executor
+	 *
+	 * @param store store of content that need not be transferred again, or null
+	 */
+	private CompletableFuture<FileResult> downloadWhole(URI uri, RequestOptions options, Path path,
+			ContentStore store, Executor executor) {
+		var handler = new FileResponseHandler(uri, path, options, getContentValidators(options, path), store,
+				bufferPool);
+		return execute(createRequest(uri, options), null, handler).thenComposeAsync(r -> {
+			if (handler.isRestartRequired()) {
+				options.setRangeStart(0);
+				options.setIfRange(null);
+				return downloadWhole(uri, options, path, store, executor);
+			}
+			FileResult result;
+			try {
+				result = handler.complete();
+			} catch (IOException | RuntimeException e) {
+				logger.error("Exception occurred during execution", e);
+				return CompletableFuture.failedFuture(toWebClientException(e));
+			}
+			if (result == null) {
+				logger.warn("Stored content no longer available, requesting remote file content again");
+				return downloadWhole(uri, options, path, null, executor);
+			}
+			return CompletableFuture.completedFuture(result);
+		}, executor);
+	}
+
+	private CompletableFuture<FileResult> downloadInSegments(URI uri, RequestOptions options, Path path,
+			Executor executor) {
+		var context = HttpClientContext.create();
+		return execute(createRequest(Method.HEAD, uri, options), context, new HeaderResponseHandler())
+				.handle((response, e) -> (e == null) ? response : null)
+				.thenComposeAsync(response -> {
+					if (response != null && response.getCode() == HttpStatus.SC_NOT_MODIFIED) {
+						logger.info("Remote file not modified");
+						return CompletableFuture.completedFuture(new FileResult());
+					}
+					var stored = completeFromStore(uri, options, path, response);
+					if (stored != null) {
+						return CompletableFuture.completedFuture(stored);
+					}
+					var threshold = (options.getSegmentThreshold() > 0) ? options.getSegmentThreshold() : DEFAULT_SEGMENT_THRESHOLD;
+					SegmentedDownload download;
+					try {
+						download = (response == null) ? null : SegmentedDownload.create(uri, path, response, threshold,
+								options.getChecksum(), options.getDurability());
+					} catch (IOException e) {
+						return CompletableFuture.failedFuture(e);
+					}
+					if (download == null) {
+						// Server does not support byte ranges or file is too small
+						return downloadWhole(uri, options, path, contentStore, executor);
+					}
+					// Segments are received out of order so only the response is checked
+					FileResponseHandler.checkResponse(getContentValidators(options, path),
+							ContentType.parseLenient(HttpUtils.getHeader(response, HttpHeaders.CONTENT_TYPE)),
+							HttpUtils.getContentLength(response));
+					return downloadSegments(getTargetUri(uri, context), options, download, executor)
+							.thenCompose(result -> (result != null) ? CompletableFuture.completedFuture(result)
+									: downloadWhole(uri, options, path, contentStore, executor));
+				}, executor);
+	}
+
+	private FileResult completeFromStore(URI uri, RequestOptions options, Path path, HttpResponse response) {
+		if (response == null || response.getCode() != HttpStatus.SC_OK) {
+			return null;
+		}
+		var sha256 = FileResponseHandler.getStoredSha256(contentStore, response, options.getChecksum());
+		if (sha256 == null) {
+			return null;
+		}
+		try {
+			var lastModified = HttpUtils.getTimeHeader(response, HttpHeaders.LAST_MODIFIED);
+			var etag = HttpUtils.getHeader(response, HttpHeaders.ETAG);
+			if (!FileResponseHandler.completeFromStore(contentStore, sha256, HttpUtils.getContentLength(response), uri,
+					path, lastModified, etag, options.getDurability())) {
+				return null;
+			}
+			logger.info("Remote file content with SHA-256 digest {} already stored", sha256);
+			return new FileResult(lastModified, etag, sha256);
+		} catch (IOException e) {
+			logger.warn("Failed to use stored content: {}", e.toString());
+			return null;
+		}
+	}
+
+	private static URI getTargetUri(URI uri, HttpClientContext context) {
+		var locations = context.getRedirectLocations();
+		return (locations == null || locations.size() == 0) ? uri : locations.get(locations.size() - 1);
+	}
+
+	/**
+	 * Download the segments concurrently. A segment whose transfer fails is
+	 * requested again without affecting the others. The result is null if the
+	 * server does not return the ranges requested, in which case the file must be
+	 * downloaded whole. The file is completed on the file executor.
+	 */
+	private CompletableFuture<FileResult> downloadSegments(URI uri, RequestOptions options, SegmentedDownload download,
+			Executor executor) {
+		try {
+			download.open();
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+
+		var rangeUnsupported = new AtomicBoolean();
+		var releases = new CopyOnWriteArrayList<CompletableFuture<Void>>();
+		var futures = new ArrayList<CompletableFuture<Long>>();
+		for (var segment : download.getSegments(options.getSegmentCount())) {
+			var segmentOptions = RequestOptions.copy(options);
+			segmentOptions.setIfModifiedSince(null);
+			segmentOptions.setIfNoneMatch(null);
+			segmentOptions.setRangeStart(segment.start());
+			segmentOptions.setRangeEnd(segment.end());
+			segmentOptions.setIfRange(download.getValidator());
+			var future = new CompletableFuture<Long>();
+			transferSegment(uri, segmentOptions, download, segment, future, rangeUnsupported, releases, 1);
+			futures.add(future);
+		}
+
+		// Stop the other segments as soon as one fails for good
+		for (var future : futures) {
+			future.whenComplete((r, e) -> {
+				if (e != null) {
+					futures.forEach(f -> f.cancel(false));
+				}
+			});
+		}
+
+		// Exchanges cancelled after a failure may write to the file until they release it
+		var segmentsDone = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+		return segmentsDone.exceptionallyCompose(e -> whenReleased(releases)).thenApplyAsync(v -> {
+			try {
+				if (segmentsDone.isCompletedExceptionally()) {
+					if (rangeUnsupported.get()) {
+						download.abort();
+						logger.info("Server did not return the byte range requested, downloading file in one piece");
+						return null;
+					}
+					throw getFirstFailure(futures);
+				}
+				return download.complete(futures.stream().mapToLong(CompletableFuture::join).sum());
+			} catch (Exception ex) {
+				download.abort();
+				throw (ex instanceof CompletionException completionException) ? completionException : new CompletionException(ex);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Return a future completed once the handlers of all exchanges started for the
+	 * segments, including retries started meanwhile, have released the file
+	 */
+	private static CompletableFuture<Void> whenReleased(List<CompletableFuture<Void>> releases) {
+		var started = List.copyOf(releases);
+		return CompletableFuture.allOf(started.toArray(CompletableFuture[]::new))
+				.thenCompose(v -> (releases.size() == started.size()) ? CompletableFuture.completedFuture(null)
+						: whenReleased(releases));
+	}
+
+	private void transferSegment(URI uri, RequestOptions options, SegmentedDownload download, Segment segment,
+			CompletableFuture<Long> result, AtomicBoolean rangeUnsupported, List<CompletableFuture<Void>> releases,
+			int attempt) {
+		var handler = download.createHandler(segment, bufferPool);
+		releases.add(handler.getReleased());
+		var future = execute(createRequest(uri, options), null, handler);
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled()) {
+				future.cancel(false);
+			}
+		});
+		future.whenComplete((r, e) -> {
+			if (e == null) {
+				result.complete(r);
+			} else if (handler.isRangeUnsupported()) {
+				rangeUnsupported.set(true);
+				result.completeExceptionally(e);
+			} else if (attempt < MAX_SEGMENT_ATTEMPTS && !result.isDone() && !future.isCancelled()) {
+				// Segment is written again from its start as buffered content may be lost
+				logger.atWarn().log("Retrying segment {}-{}: {}", segment.start(), segment.end(),
+						LangUtils.getRootCause(e).getMessage());
+				transferSegment(uri, options, download, segment, result, rangeUnsupported, releases, attempt + 1);
+			} else {
+				result.completeExceptionally(e);
+			}
+		});
+	}
+
+	private static Exception getFirstFailure(List<CompletableFuture<Long>> futures) {
+		for (var future : futures) {
+			if (future.isCompletedExceptionally() && !future.isCancelled()) {
+				return (Exception) future.exceptionNow();
+			}
 		}
-		return execute(createRequest(uri, options), null, new FileResponseHandler(uri, path));
+		return new CancellationException();
+	}
+
+	/**
+	 * Retrieve the response body and save it to file. The file is only
+	 * downloaded if it has changed since the local copy was saved, as told by the
+	 * validators given in the options or else by the last modified time and
+	 * entity tag of the local file.
+	 */
+	public FileResult saveToFile(URI uri, RequestOptions options, Path path) throws IOException, WebClientException {
+		prepareFile(uri, options, path);
+		return await(download(uri, options, path));
+	}
+
+	/**
+	 * Retrieve the response body and save it to file without blocking. The future
+	 * completes exceptionally with {@link IOException} if the local file cannot be
+	 * prepared or with {@link WebClientException} if the exchange fails.
+	 */
+	public CompletableFuture<FileResult> saveToFileAsync(URI uri, RequestOptions options, Path path) {
+		try {
+			prepareFile(uri, options, path);
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		return download(uri, options, path);
 	}
 
 	/**
 	 * Retrieve the location header value in the redirect (3xx) response.
 	 */
 	public URI getLocation(URI uri, RequestOptions options) throws WebClientException {
+		return await(getLocationAsync(uri, options));
+	}
+
+	/**
+	 * Retrieve the location header value in the redirect (3xx) response without
+	 * blocking. The future completes exceptionally with {@link WebClientException}
+	 * on failure.
+	 */
+	public CompletableFuture<URI> getLocationAsync(URI uri, RequestOptions options) {
 		var context = new HttpClientContext();
 
 		// Disable auto-redirect to obtain the location header
@@ -7,8 +7,23 @@ public class WebClientException extends Exception {
 	@Serial
 	private static final long serialVersionUID = 1L;
 
+	private final int statusCode;
+
 	public WebClientException(String message) {
+		this(message, 0);
+	}
+
+	public WebClientException(String message, int statusCode) {
 		super(message);
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * Status code of the response if the request failed because of it, or 0
+	 * otherwise
+	 */
+	public int getStatusCode() {
+		return statusCode;
 	}
 
 }
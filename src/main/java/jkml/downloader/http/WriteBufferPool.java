@@ -0,0 +1,90 @@
+package jkml.downloader.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+
+import jkml.downloader.util.PropertiesHelper;
+
+/**
+ * Pool of direct buffers in which downloads gather the content they receive
+ * before writing it to file. The buffers are shared by all downloads and the
+ * memory they take is capped. A download finding no free buffer writes its
+ * content as received instead of waiting, so that no I/O thread is blocked.
+ */
+final class WriteBufferPool {
+
+	private static final int MIN_BUFFER_SIZE = 1024 * 1024;
+
+	private static final int MAX_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	private final int bufferSize;
+
+	private final int maxCount;
+
+	private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+
+	private final LongAdder byteCount = new LongAdder();
+
+	private final LongAdder writeCount = new LongAdder();
+
+	private int allocatedCount;
+
+	/**
+	 * @param bufferSize size of each buffer in bytes, from 1 to 4 MB
+	 * @param maxMemory  maximum number of bytes taken by all buffers
+	 */
+	public WriteBufferPool(int bufferSize, long maxMemory) {
+		if (bufferSize < MIN_BUFFER_SIZE || bufferSize > MAX_BUFFER_SIZE) {
+			throw new IllegalArgumentException("Write buffer size must be from 1 to 4 MB: " + bufferSize);
+		}
+		if (maxMemory < 0) {
+			throw new IllegalArgumentException("Write buffer memory must not be negative: " + maxMemory);
+		}
+		this.bufferSize = bufferSize;
+		this.maxCount = (int) Math.min(maxMemory / bufferSize, Integer.MAX_VALUE);
+	}
+
+	public static WriteBufferPool create(PropertiesHelper properties) {
+		return new WriteBufferPool(Integer.parseInt(properties.getRequired("write.buffer-size-kb")) * 1024,
+				Long.parseLong(properties.getRequired("write.max-buffer-memory-mb")) * 1024 * 1024);
+	}
+
+	/**
+	 * Take a cleared buffer from the pool, or return null if all buffers the
+	 * memory cap allows are in use
+	 */
+	public synchronized ByteBuffer acquire() {
+		var buffer = freeBuffers.poll();
+		if (buffer != null) {
+			return buffer;
+		}
+		if (allocatedCount >= maxCount) {
+			return null;
+		}
+		++allocatedCount;
+		return ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/**
+	 * Return a buffer taken from the pool
+	 */
+	public synchronized void release(ByteBuffer buffer) {
+		freeBuffers.push(buffer.clear());
+	}
+
+	/**
+	 * Record a write call on a file channel
+	 */
+	void recordWrite(long bytes) {
+		byteCount.add(bytes);
+		writeCount.increment();
+	}
+
+	public synchronized WriteStats getStats() {
+		return new WriteStats(byteCount.sum(), writeCount.sum(), bufferSize, allocatedCount,
+				allocatedCount - freeBuffers.size(), maxCount);
+	}
+
+}
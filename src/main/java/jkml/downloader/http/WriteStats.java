@@ -0,0 +1,15 @@
+package jkml.downloader.http;
+
+/**
+ * Snapshot of the writes of downloaded content to files.
+ *
+ * @param byteCount      number of bytes written
+ * @param writeCount     number of write calls made on file channels
+ * @param bufferSize     size of each pooled write buffer in bytes
+ * @param allocatedCount number of write buffers allocated
+ * @param inUseCount     number of write buffers held by downloads
+ * @param maxCount       maximum number of write buffers allocated at once
+ */
+public record WriteStats(long byteCount, long writeCount, int bufferSize, int allocatedCount, int inUseCount,
+		int maxCount) {
+}
@@ -2,6 +2,7 @@ package jkml.downloader.profile;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.regex.Pattern;
 
@@ -12,46 +13,87 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
-class GsonUtils {
+public class GsonUtils {
 
 	private GsonUtils() {
 	}
 
 	public static Gson createGson() {
+		return createGson(new PatternCache());
+	}
+
+	/**
+	 * Create a Gson instance reading patterns through the cache
+	 */
+	public static Gson createGson(PatternCache patternCache) {
 		return new GsonBuilder()
 				.disableHtmlEscaping()
 				.disableInnerClassSerialization()
 				.disableJdkUnsafe()
-				.registerTypeAdapter(Pattern.class, PatternAdapter)
+				.registerTypeAdapter(Pattern.class, createPatternAdapter(patternCache))
+				.registerTypeAdapter(LazyPattern.class, createLazyPatternAdapter(patternCache))
 				.registerTypeAdapter(Instant.class, InstantAdapter)
+				.registerTypeAdapter(Duration.class, DurationAdapter)
 				.registerTypeHierarchyAdapter(Path.class, PathAdapter)
 				.setStrictness(Strictness.STRICT)
 				.create();
 	}
 
-	private static final TypeAdapter<Pattern> PatternAdapter = new TypeAdapter<Pattern>() {
+	private static TypeAdapter<Pattern> createPatternAdapter(PatternCache patternCache) {
+		return new TypeAdapter<Pattern>() {
+
+			@Override
+			public Pattern read(JsonReader in) throws IOException {
+				return patternCache.get(in.nextString());
+			}
+
+			@Override
+			public void write(JsonWriter out, Pattern value) throws IOException {
+				out.value(value.toString());
+			}
+
+		}.nullSafe();
+	}
+
+	private static TypeAdapter<LazyPattern> createLazyPatternAdapter(PatternCache patternCache) {
+		return new TypeAdapter<LazyPattern>() {
+
+			@Override
+			public LazyPattern read(JsonReader in) throws IOException {
+				return patternCache.getLazy(in.nextString());
+			}
+
+			@Override
+			public void write(JsonWriter out, LazyPattern value) throws IOException {
+				out.value(value.regex());
+			}
+
+		}.nullSafe();
+	}
+
+	private static final TypeAdapter<Instant> InstantAdapter = new TypeAdapter<Instant>() {
 
 		@Override
-		public Pattern read(JsonReader in) throws IOException {
-			return Pattern.compile(in.nextString());
+		public Instant read(JsonReader in) throws IOException {
+			return Instant.parse(in.nextString());
 		}
 
 		@Override
-		public void write(JsonWriter out, Pattern value) throws IOException {
+		public void write(JsonWriter out, Instant value) throws IOException {
 			out.value(value.toString());
 		}
 
 	}.nullSafe();
 
-	private static final TypeAdapter<Instant> InstantAdapter = new TypeAdapter<Instant>() {
+	private static final TypeAdapter<Duration> DurationAdapter = new TypeAdapter<Duration>() {
 
 		@Override
-		public Instant read(JsonReader in) throws IOException {
-			return Instant.parse(in.nextString());
+		public Duration read(JsonReader in) throws IOException {
+			return Duration.parse(in.nextString());
 		}
 
 		@Override
-		public void write(JsonWriter out, Instant value) throws IOException {
+		public void write(JsonWriter out, Duration value) throws IOException {
 			out.value(value.toString());
 		}
 
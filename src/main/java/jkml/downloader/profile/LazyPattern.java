@@ -0,0 +1,48 @@
+package jkml.downloader.profile;
+
+import java.util.regex.Pattern;
+
+/**
+ * Regular expression compiled on first use
+ */
+final class LazyPattern {
+
+	private final String regex;
+
+	private volatile Pattern pattern;
+
+	LazyPattern(String regex) {
+		this.regex = regex;
+	}
+
+	LazyPattern(Pattern pattern) {
+		this.regex = pattern.pattern();
+		this.pattern = pattern;
+	}
+
+	String regex() {
+		return regex;
+	}
+
+	/**
+	 * Return the compiled pattern. The same pattern object is returned on every
+	 * call.
+	 *
+	 * @throws java.util.regex.PatternSyntaxException if the regular expression is
+	 *                                                not valid
+	 */
+	Pattern get() {
+		var result = pattern;
+		if (result == null) {
+			synchronized (this) {
+				result = pattern;
+				if (result == null) {
+					result = Pattern.compile(regex);
+					pattern = result;
+				}
+			}
+		}
+		return result;
+	}
+
+}
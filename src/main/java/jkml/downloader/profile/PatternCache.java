@@ -0,0 +1,86 @@
+package jkml.downloader.profile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of patterns keyed by regular expression, so that a pattern
+ * repeated in profiles is compiled once. The least recently used pattern is
+ * evicted when the cache is full. Patterns are compiled on first use, outside
+ * the lock of the cache.
+ */
+public final class PatternCache {
+
+	/**
+	 * Counts of the lookups of the cache
+	 *
+	 * @param hits      number of lookups that found a cached pattern
+	 * @param misses    number of lookups that added a pattern
+	 * @param evictions number of patterns evicted to stay within the capacity
+	 * @param size      number of patterns in the cache
+	 */
+	public record Stats(long hits, long misses, long evictions, int size) {
+	}
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	private final int capacity;
+
+	private final Map<String, LazyPattern> patterns;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	public PatternCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PatternCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.patterns = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Return the lazily compiled pattern of the regular expression, adding it if
+	 * not cached
+	 */
+	synchronized LazyPattern getLazy(String regex) {
+		var pattern = patterns.get(regex);
+		if (pattern != null) {
+			++hits;
+			return pattern;
+		}
+		++misses;
+		pattern = new LazyPattern(regex);
+		patterns.put(regex, pattern);
+		if (patterns.size() > capacity) {
+			var eldest = patterns.keySet().iterator();
+			eldest.next();
+			eldest.remove();
+			++evictions;
+		}
+		return pattern;
+	}
+
+	/**
+	 * Return the compiled pattern of the regular expression
+	 *
+	 * @throws java.util.regex.PatternSyntaxException if the regular expression is
+	 *                                                not valid
+	 */
+	public Pattern get(String regex) {
+		return getLazy(regex).get();
+	}
+
+	public synchronized Stats getStats() {
+		return new Stats(hits, misses, evictions, patterns.size());
+	}
+
+}
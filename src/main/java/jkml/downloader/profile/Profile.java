@@ -2,6 +2,7 @@ package jkml.downloader.profile;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.regex.Pattern;
 
 import jkml.downloader.html.Occurrence;
@@ -21,16 +22,24 @@ public class Profile {
 
 	private URI pageUrl;
 
-	private Pattern linkPattern;
+	private LazyPattern linkPattern;
 
 	private Occurrence linkOccurrence;
 
-	private Pattern versionPattern;
+	private LazyPattern versionPattern;
+
+	private String checksum;
+
+	private URI checksumUrl;
+
+	private LazyPattern checksumPattern;
 
 	private RequestOptions requestOptions;
 
 	private boolean skipIfFileExists;
 
+	private Duration checkInterval;
+
 	private Path outputDirectory;
 
 	public String getName() {
@@ -65,12 +74,23 @@ public class Profile {
 		this.pageUrl = pageUrl;
 	}
 
+	/**
+	 * Pattern of the file link, compiled on first use
+	 */
 	public Pattern getLinkPattern() {
-		return linkPattern;
+		return (linkPattern == null) ? null : linkPattern.get();
 	}
 
 	public void setLinkPattern(Pattern linkPattern) {
-		this.linkPattern = linkPattern;
+		this.linkPattern = (linkPattern == null) ? null : new LazyPattern(linkPattern);
+	}
+
+	/**
+	 * Regular expression of the file link, which is available without compiling
+	 * it
+	 */
+	String getLinkRegex() {
+		return (linkPattern == null) ? null : linkPattern.regex();
 	}
 
 	public Occurrence getLinkOccurrence() {
@@ -81,12 +101,58 @@ public class Profile {
 		this.linkOccurrence = linkOccurrence;
 	}
 
+	/**
+	 * Pattern of the file version, compiled on first use
+	 */
 	public Pattern getVersionPattern() {
-		return versionPattern;
+		return (versionPattern == null) ? null : versionPattern.get();
 	}
 
 	public void setVersionPattern(Pattern versionPattern) {
-		this.versionPattern = versionPattern;
+		this.versionPattern = (versionPattern == null) ? null : new LazyPattern(versionPattern);
+	}
+
+	String getVersionRegex() {
+		return (versionPattern == null) ? null : versionPattern.regex();
+	}
+
+	/**
+	 * Expected SHA-256 hash of the file in hexadecimal, or null if not given
+	 */
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(String checksum) {
+		this.checksum = checksum;
+	}
+
+	/**
+	 * URL of the content holding the SHA-256 hash of the file, or null if not
+	 * given
+	 */
+	public URI getChecksumUrl() {
+		return checksumUrl;
+	}
+
+	public void setChecksumUrl(URI checksumUrl) {
+		this.checksumUrl = checksumUrl;
+	}
+
+	/**
+	 * Pattern of the SHA-256 hash of the file in the content at the checksum URL,
+	 * or in the page if there is none, compiled on first use
+	 */
+	public Pattern getChecksumPattern() {
+		return (checksumPattern == null) ? null : checksumPattern.get();
+	}
+
+	public void setChecksumPattern(Pattern checksumPattern) {
+		this.checksumPattern = (checksumPattern == null) ? null : new LazyPattern(checksumPattern);
+	}
+
+	String getChecksumRegex() {
+		return (checksumPattern == null) ? null : checksumPattern.regex();
 	}
 
 	public RequestOptions getRequestOptions() {
@@ -105,6 +171,18 @@ public class Profile {
 		this.skipIfFileExists = skipIfFileExists;
 	}
 
+	/**
+	 * Minimum time between successful checks of the profile when recently
+	 * checked profiles are skipped, or null to check the profile on every run
+	 */
+	public Duration getCheckInterval() {
+		return checkInterval;
+	}
+
+	public void setCheckInterval(Duration checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+
 	public Path getOutputDirectory() {
 		return outputDirectory;
 	}
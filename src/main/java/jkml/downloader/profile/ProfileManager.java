@@ -1,22 +1,94 @@
 package jkml.downloader.profile;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import jkml.downloader.html.ChecksumFinder;
+import jkml.downloader.html.PatternChecker;
 import jkml.downloader.http.RequestOptions;
 import jkml.downloader.profile.Profile.Type;
 import jkml.downloader.util.StringUtils;
 
 public class ProfileManager {
 
+	/**
+	 * Profiles added, changed and removed since the profiles were last loaded
+	 *
+	 * @param added   profiles with a name not loaded before
+	 * @param changed profiles whose content differs from the one loaded before
+	 * @param removed names of the profiles no longer present
+	 */
+	public record Changes(List<Profile> added, List<Profile> changed, List<String> removed) {
+
+		public Changes {
+			added = List.copyOf(added);
+			changed = List.copyOf(changed);
+			removed = List.copyOf(removed);
+		}
+
+		public boolean isEmpty() {
+			return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+		}
+
+	}
+
+	/**
+	 * Time without further events after which a modified file is reloaded, as
+	 * editors may write a file in several steps
+	 */
+	private static final long SETTLE_MILLIS = 200;
+
 	private final Logger logger = LoggerFactory.getLogger(ProfileManager.class);
 
+	private final PatternCache patternCache;
+
+	private final Gson gson;
+
+	private final TypeAdapter<Profile> profileAdapter;
+
+	/**
+	 * SHA-256 hash of the content of the profiles loaded last, by profile name
+	 */
+	private Map<String, String> digests = Map.of();
+
+	public ProfileManager() {
+		this(new PatternCache());
+	}
+
+	/**
+	 * @param patternCache cache of the patterns of the profiles, kept across
+	 *                     loads and reloads
+	 */
+	public ProfileManager(PatternCache patternCache) {
+		this.patternCache = patternCache;
+		this.gson = GsonUtils.createGson(patternCache);
+		this.profileAdapter = gson.getAdapter(Profile.class);
+	}
+
 	private static Profile normalize(Profile profile) {
 		if (profile.getRequestOptions() == null) {
 			profile.setRequestOptions(new RequestOptions());
@@ -55,29 +127,248 @@ public class ProfileManager {
 			if (profile.getPageUrl() == null) {
 				errors.add(type.name() + " profile must contain a pageUrl");
 			}
-			if (profile.getLinkPattern() == null) {
+			if (profile.getLinkRegex() == null) {
 				errors.add(type.name() + " profile must contain a linkPattern");
 			}
 		}
 
+		var checkInterval = profile.getCheckInterval();
+		if (checkInterval != null && (checkInterval.isNegative() || checkInterval.isZero())) {
+			errors.add("checkInterval must be positive");
+		}
+
+		// Patterns are compiled on first use, where an invalid one fails the profile
+		validatePattern("linkPattern", profile.getLinkRegex(), errors);
+		validatePattern("versionPattern", profile.getVersionRegex(), errors);
+		validatePattern("checksumPattern", profile.getChecksumRegex(), errors);
+
+		if (profile.getChecksum() != null && !ChecksumFinder.isSha256(profile.getChecksum())) {
+			errors.add("checksum must be a SHA-256 hash in hexadecimal");
+		}
+		if (profile.getChecksumUrl() == null && profile.getPageUrl() == null && profile.getChecksumRegex() != null) {
+			errors.add("checksumPattern requires a checksumUrl or pageUrl");
+		}
+
 		return errors;
 	}
 
+	private static void validatePattern(String name, String regex, List<String> errors) {
+		if (regex != null && PatternChecker.hasNestedQuantifiers(regex)) {
+			errors.add(name + " contains a repeated group with nested quantifiers, which may cause excessive backtracking: "
+					+ regex);
+		}
+	}
+
 	public List<Profile> load(Path path) throws IOException {
+		var list = new ArrayList<Profile>();
+		load(path, list::add);
+		return list;
+	}
+
+	/**
+	 * Read the profiles one at a time and pass each to the consumer as soon as it
+	 * is read, before the rest of the file is read. A profile with the same name
+	 * as an earlier one is skipped.
+	 *
+	 * @return number of profiles passed to the consumer
+	 */
+	public int load(Path path, Consumer<Profile> consumer) throws IOException {
 		logger.info("Loading profiles from file: {}", path);
 
-		Profile[] array;
-		try (var reader = Files.newBufferedReader(path)) {
-			array = GsonUtils.createGson().fromJson(reader, Profile[].class);
+		var newDigests = new HashMap<String, String>();
+		var count = new int[1];
+		var index = new int[1];
+		read(path, profile -> {
+			if (put(newDigests, profile.getName(), digest(profile), index[0]++)) {
+				++count[0];
+				consumer.accept(normalize(profile));
+			}
+		});
+		digests = newDigests;
+
+		logger.info("Loaded profile count: {}", count[0]);
+		logPatternCacheStats();
+		return count[0];
+	}
+
+	/**
+	 * Load the profiles again and return the differences from those loaded last
+	 */
+	public Changes reload(Path path) throws IOException {
+		logger.info("Reloading profiles from file: {}", path);
+
+		var added = new ArrayList<Profile>();
+		var changed = new ArrayList<Profile>();
+		var newDigests = new HashMap<String, String>();
+		var index = new int[1];
+		read(path, profile -> {
+			var name = profile.getName();
+			var digest = digest(profile);
+			if (!put(newDigests, name, digest, index[0]++)) {
+				return;
+			}
+			var oldDigest = (name == null) ? null : digests.get(name);
+			if (oldDigest == null) {
+				added.add(normalize(profile));
+			} else if (!oldDigest.equals(digest)) {
+				changed.add(normalize(profile));
+			}
+		});
+		var removed = new ArrayList<String>();
+		for (var name : digests.keySet()) {
+			if (!newDigests.containsKey(name)) {
+				removed.add(name);
+			}
 		}
+		digests = newDigests;
 
-		var list = new ArrayList<Profile>(array.length);
-		for (var p : array) {
-			list.add(normalize(p));
+		logger.info("Reloaded profiles added: {}, changed: {}, removed: {}", added.size(), changed.size(), removed.size());
+		logPatternCacheStats();
+		return new Changes(added, changed, removed);
+	}
+
+	/**
+	 * Keep the hash of a profile for change detection. A profile without a name
+	 * is not kept and is left to validation.
+	 *
+	 * @return false if the profile has the same name as an earlier one, in which
+	 *         case it is skipped
+	 */
+	private boolean put(Map<String, String> newDigests, String name, String digest, int index) {
+		if (name != null && newDigests.putIfAbsent(name, digest) != null) {
+			logger.atError().log("Skipping profile[{}] with the same name as an earlier profile: {}", index, name);
+			return false;
 		}
+		return true;
+	}
 
-		logger.info("Loaded profile count: {}", list.size());
-		return list;
+	private void logPatternCacheStats() {
+		var stats = patternCache.getStats();
+		logger.debug("Pattern cache hits: {}, misses: {}, evictions: {}, size: {}", stats.hits(), stats.misses(),
+				stats.evictions(), stats.size());
+	}
+
+	/**
+	 * Read the profiles in the JSON array in the file one at a time, binding each
+	 * as it is parsed without building a tree of its elements
+	 */
+	private void read(Path path, Consumer<Profile> consumer) throws IOException {
+		try (var reader = gson.newJsonReader(Files.newBufferedReader(path))) {
+			reader.beginArray();
+			while (reader.hasNext()) {
+				var profile = profileAdapter.read(reader);
+				if (profile == null) {
+					throw new JsonParseException("Profile must be a JSON object: null");
+				}
+				consumer.accept(profile);
+			}
+			reader.endArray();
+		} catch (MalformedJsonException | EOFException | IllegalStateException e) {
+			throw new JsonSyntaxException(e);
+		}
+	}
+
+	/**
+	 * Return the SHA-256 hash of the profile as read from the file, which is
+	 * computed as it is written out without keeping its JSON
+	 */
+	private String digest(Profile profile) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		try (var writer = new JsonWriter(new DigestWriter(digest))) {
+			profileAdapter.write(writer, profile);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Feeds the characters written into a digest
+	 */
+	private static class DigestWriter extends Writer {
+
+		private final MessageDigest digest;
+
+		DigestWriter(MessageDigest digest) {
+			this.digest = digest;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			for (var i = off; i < off + len; ++i) {
+				digest.update((byte) (cbuf[i] >> 8));
+				digest.update((byte) cbuf[i]);
+			}
+		}
+
+		@Override
+		public void flush() {
+			// Nothing is buffered
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release
+		}
+
+	}
+
+	/**
+	 * Reload the profiles whenever the file is modified and pass the changes to
+	 * the listener, until the thread is interrupted. A file that cannot be loaded
+	 * is ignored until it is modified again.
+	 */
+	public void watch(Path path, Consumer<Changes> listener) throws IOException, InterruptedException {
+		var absolutePath = path.toAbsolutePath();
+		var directory = absolutePath.getParent();
+		if (directory == null) {
+			throw new IllegalArgumentException("Not a file path: " + path);
+		}
+		var fileName = absolutePath.getFileName();
+		try (var watchService = absolutePath.getFileSystem().newWatchService()) {
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			logger.info("Watching profiles file: {}", path);
+			while (!Thread.currentThread().isInterrupted()) {
+				var modified = isModified(watchService.take(), fileName);
+				WatchKey key;
+				while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					modified |= isModified(key, fileName);
+				}
+				if (modified) {
+					reload(path, listener);
+				}
+			}
+		}
+	}
+
+	private static boolean isModified(WatchKey key, Path fileName) {
+		var modified = false;
+		for (var event : key.pollEvents()) {
+			if (fileName.equals(event.context())) {
+				modified = true;
+			}
+		}
+		key.reset();
+		return modified;
+	}
+
+	private void reload(Path path, Consumer<Changes> listener) {
+		Changes changes;
+		try {
+			changes = reload(path);
+		} catch (IOException | JsonParseException e) {
+			logger.atError().log("Failed to reload profiles file {}: {}", path, e.toString());
+			return;
+		}
+		if (!changes.isEmpty()) {
+			listener.accept(changes);
+		}
 	}
 
 }
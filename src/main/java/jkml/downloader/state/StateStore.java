@@ -0,0 +1,210 @@
+package jkml.downloader.state;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import jkml.downloader.profile.GsonUtils;
+
+/**
+ * Persistent state of the downloads of each profile, keyed by profile name.
+ * Every change is appended as a JSON line to the state file, so recording
+ * state never rewrites the file. The last line of a profile wins on load. The
+ * file is compacted on load, and as lines are appended after a load, when it
+ * holds mostly superseded or damaged lines.
+ */
+public class StateStore implements Closeable {
+
+	public static final String FILE_NAME = "download-state.jsonl";
+
+	/**
+	 * State of the downloads of a profile
+	 *
+	 * @param name           profile name
+	 * @param fileUrl        file URL resolved last
+	 * @param version        file version found last, or null if not available
+	 * @param path           local file saved last
+	 * @param etag           entity tag of the remote file, or null if not available
+	 * @param lastModified   last modified time of the remote file, or null if not
+	 *                       available
+	 * @param size           size of the local file when it was saved, or -1 if not
+	 *                       known
+	 * @param sha256         SHA-256 hash of the local file content in hexadecimal,
+	 *                       or null if not known
+	 * @param lastCheck      time the profile was last processed
+	 * @param failureCount   number of consecutive failures of the profile
+	 * @param unchangedCount number of consecutive checks that found the file up
+	 *                       to date
+	 */
+	public record Entry(String name, URI fileUrl, String version, Path path, String etag, Instant lastModified,
+			long size, String sha256, Instant lastCheck, int failureCount, int unchangedCount) {
+
+		/**
+		 * Return a copy recording a failure
+		 */
+		public Entry failed(Instant time) {
+			return new Entry(name, fileUrl, version, path, etag, lastModified, size, sha256, time, failureCount + 1,
+					unchangedCount);
+		}
+
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(StateStore.class);
+
+	private final Gson gson = GsonUtils.createGson();
+
+	private final Path dataDirectory;
+
+	private final Path path;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private Writer writer;
+
+	/**
+	 * Number of lines in the state file, or -1 if the file has not been loaded
+	 * and cannot be compacted without losing the lines of other profiles
+	 */
+	private int fileLineCount = -1;
+
+	public StateStore(Path dataDirectory) {
+		this.dataDirectory = dataDirectory;
+		this.path = dataDirectory.resolve(FILE_NAME);
+	}
+
+	/**
+	 * Load entries from the state file. Damaged lines, such as one cut short by
+	 * an interrupted run, are skipped. A missing or unreadable file leaves the
+	 * store empty.
+	 */
+	public synchronized void load() {
+		if (Files.notExists(path)) {
+			fileLineCount = 0;
+			return;
+		}
+
+		var lineCount = 0;
+		var damaged = false;
+		try (var reader = Files.newBufferedReader(path)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank()) {
+					continue;
+				}
+				++lineCount;
+				var entry = parse(line);
+				if (entry == null) {
+					logger.atWarn().log("Skipping damaged line {} of state file {}", lineCount, path);
+					damaged = true;
+				} else {
+					entries.put(entry.name(), entry);
+				}
+			}
+			logger.debug("Loaded download state entry count: {}", entries.size());
+		} catch (IOException e) {
+			logger.atWarn().log("Failed to load state file {}: {}", path, e.toString());
+			return;
+		}
+		fileLineCount = lineCount;
+
+		// Damaged line must not be followed by appended lines
+		if (damaged || isMostlySuperseded()) {
+			tryCompact();
+		}
+	}
+
+	private boolean isMostlySuperseded() {
+		return fileLineCount > 2 * entries.size();
+	}
+
+	private void tryCompact() {
+		try {
+			compact();
+		} catch (IOException e) {
+			logger.atWarn().log("Failed to compact state file {}: {}", path, e.toString());
+		}
+	}
+
+	private Entry parse(String line) {
+		try {
+			var entry = gson.fromJson(line, Entry.class);
+			return (entry == null || entry.name() == null) ? null : entry;
+		} catch (JsonParseException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Rewrite the state file with one line for each entry
+	 */
+	synchronized void compact() throws IOException {
+		closeWriter();
+		Files.createDirectories(dataDirectory);
+		var tmpPath = dataDirectory.resolve(FILE_NAME + ".tmp");
+		try (var tmpWriter = Files.newBufferedWriter(tmpPath)) {
+			for (var entry : new TreeMap<>(entries).values()) {
+				tmpWriter.write(gson.toJson(entry));
+				tmpWriter.write('\n');
+			}
+		}
+		Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		fileLineCount = entries.size();
+		logger.debug("Compacted state file with entry count: {}", entries.size());
+	}
+
+	public Entry get(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * Record the state of a profile and append it to the state file. A loaded
+	 * file is compacted once it holds mostly superseded lines, so that it does not
+	 * grow without bound in a long-running process.
+	 */
+	public synchronized void put(Entry entry) throws IOException {
+		entries.put(entry.name(), entry);
+		if (writer == null) {
+			Files.createDirectories(dataDirectory);
+			writer = Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+		writer.write(gson.toJson(entry));
+		writer.write('\n');
+		writer.flush();
+
+		if (fileLineCount >= 0) {
+			++fileLineCount;
+			if (isMostlySuperseded()) {
+				tryCompact();
+			}
+		}
+	}
+
+	private void closeWriter() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closeWriter();
+	}
+
+}
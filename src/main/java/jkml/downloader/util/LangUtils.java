@@ -29,6 +29,11 @@ public class LangUtils {
 		return causes.isEmpty() ? null : causes.get(causes.size() - 1);
 	}
 
+	/**
+	 * Wait for the result of the future, ignoring interruption until it is done.
+	 * The wait parks the thread rather than holding a monitor, so a virtual thread
+	 * is unmounted from its carrier thread while waiting.
+	 */
 	public static <V> V getUninterruptibly(Future<V> future) throws ExecutionException {
 		var interrupted = false;
 		try {
@@ -1,6 +1,13 @@
 package jkml.downloader;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 import org.junit.jupiter.api.Test;
 
@@ -11,6 +18,41 @@ class DownloaderAppTests {
 		assertDoesNotThrow(() -> DownloaderApp.main(new String[] {}));
 	}
 
+	@Test
+	void testMain_invalidOption() {
+		assertDoesNotThrow(() -> DownloaderApp.main(new String[] { "--no-such-option", "no_such_file.json" }));
+	}
+
+	@Test
+	void testParseOptions() {
+		assertEquals(1, DownloaderApp.parseOptions("file.json").getConcurrency());
+		assertEquals(4, DownloaderApp.parseOptions("--concurrency=4", "file.json").getConcurrency());
+		assertThrows(IllegalArgumentException.class, () -> DownloaderApp.parseOptions("--concurrency=0", "file.json"));
+		assertThrows(IllegalArgumentException.class, () -> DownloaderApp.parseOptions("--concurrency=x", "file.json"));
+
+		var options = DownloaderApp.parseOptions("--virtual-threads", "file.json");
+		assertTrue(options.isVirtualThreads());
+		assertEquals(Integer.MAX_VALUE, options.getConcurrency());
+
+		options = DownloaderApp.parseOptions("--virtual-threads", "--concurrency=8", "file.json");
+		assertTrue(options.isVirtualThreads());
+		assertEquals(8, options.getConcurrency());
+
+		assertNull(DownloaderApp.parseOptions("file.json").getDataDirectory());
+		assertEquals(Path.of("data"), DownloaderApp.parseOptions("--data-dir=data", "file.json").getDataDirectory());
+
+		assertTrue(DownloaderApp.parseOptions("--data-dir=data", "--skip-recent", "file.json").isSkipRecentlyChecked());
+		assertThrows(IllegalArgumentException.class, () -> DownloaderApp.parseOptions("--skip-recent", "file.json"));
+
+		assertNull(DownloaderApp.parseOptions("file.json").getDaemonInterval());
+		assertEquals(Duration.ofHours(1), DownloaderApp.parseOptions("--daemon=PT1H", "file.json").getDaemonInterval());
+		assertThrows(IllegalArgumentException.class, () -> DownloaderApp.parseOptions("--daemon=PT0S", "file.json"));
+		assertThrows(IllegalArgumentException.class, () -> DownloaderApp.parseOptions("--daemon=1h", "file.json"));
+
+		assertTrue(DownloaderApp.parseOptions("--data-dir=data", "--blob-store", "file.json").isBlobStore());
+		assertThrows(IllegalArgumentException.class, () -> DownloaderApp.parseOptions("--blob-store", "file.json"));
+	}
+
 	@Test
 	void testMain() {
 		assertDoesNotThrow(() -> DownloaderApp.main(new String[] { "no_such_file.json" }));
@@ -0,0 +1,185 @@
+package jkml.downloader;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.http.FileResult;
+import jkml.downloader.http.RequestOptions;
+import jkml.downloader.http.WebClient;
+import jkml.downloader.profile.Profile;
+import jkml.downloader.profile.Profile.Type;
+import jkml.downloader.profile.ProfileManager;
+import jkml.downloader.util.TestUtils;
+
+class DownloaderDaemonTests {
+
+	private static final Path outDir = TestUtils.outputDirectory();
+
+	@Test
+	void testConstructor() {
+		var downloader = new Downloader(mock(WebClient.class));
+		assertThrows(IllegalArgumentException.class, () -> new DownloaderDaemon(downloader, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> new DownloaderDaemon(downloader, Duration.ofSeconds(-1)));
+	}
+
+	private static Profile createProfile(String name, URI fileLink) {
+		var profile = new Profile();
+		profile.setName(name);
+		profile.setType(Type.DIRECT);
+		profile.setFileUrl(fileLink);
+		profile.setOutputDirectory(outDir);
+		return profile;
+	}
+
+	@Test
+	void testRun() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file.zip");
+		var filePath = outDir.resolve("file.zip");
+		var profile = createProfile("Something", fileLink);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient)) {
+			when(mockWebClient.saveToFile(eq(fileLink), nullable(RequestOptions.class), eq(filePath))).thenReturn(new FileResult());
+
+			var daemon = new DownloaderDaemon(downloader, Duration.ofMillis(100));
+			daemon.schedule(profile);
+			var thread = new Thread(daemon::run);
+			thread.start();
+
+			// Profile is checked again after its interval
+			verify(mockWebClient, timeout(5000).atLeast(2)).saveToFile(eq(fileLink), nullable(RequestOptions.class), eq(filePath));
+
+			daemon.stop();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+		}
+	}
+
+	@Test
+	void testRun_path() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file.zip");
+		var path = outDir.resolve("profiles-daemon.json");
+		Files.writeString(path, """
+				[ { "name": "Something", "fileUrl": "%s", "outputDirectory": "%s" } ]""".formatted(fileLink,
+				outDir.toString().replace("\\", "\\\\")));
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient)) {
+			when(mockWebClient.saveToFile(eq(fileLink), nullable(RequestOptions.class), nullable(Path.class))).thenReturn(new FileResult());
+
+			var daemon = new DownloaderDaemon(downloader, Duration.ofHours(1));
+			var thread = new Thread(() -> daemon.run(path));
+			thread.start();
+			verify(mockWebClient, timeout(5000)).saveToFile(eq(fileLink), nullable(RequestOptions.class), nullable(Path.class));
+
+			daemon.stop();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+		}
+	}
+
+	@Test
+	void testRun_coalesced() throws Exception {
+		var fileLink1 = URI.create("https://localhost/downloads/file-1.zip");
+		var fileLink2 = URI.create("https://localhost/downloads/file-2.zip");
+		var profile1 = createProfile("Profile 1", fileLink1);
+		var profile2 = createProfile("Profile 2", fileLink2);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = spy(new Downloader(mockWebClient))) {
+			when(mockWebClient.saveToFile(nullable(URI.class), nullable(RequestOptions.class), nullable(Path.class))).thenReturn(new FileResult());
+
+			var daemon = new DownloaderDaemon(downloader, Duration.ofHours(1));
+			daemon.schedule(profile1);
+			var thread = new Thread(daemon::run);
+			thread.start();
+
+			// Profile falling due shortly after the first one, as when still loading, joins its run
+			Thread.sleep(DownloaderDaemon.COALESCE_MILLIS / 5);
+			daemon.schedule(profile2);
+			verify(downloader, timeout(5000)).download(List.of(profile1, profile2));
+
+			daemon.stop();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+		}
+	}
+
+	@Test
+	void testRun_noProfile() throws Exception {
+		try (var downloader = new Downloader(mock(WebClient.class))) {
+			var daemon = new DownloaderDaemon(downloader, Duration.ofHours(1));
+			var thread = new Thread(() -> daemon.run(outDir.resolve("no_such_file.json")));
+			thread.start();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+		}
+	}
+
+	@Test
+	void testUpdate() throws Exception {
+		var fileLink1 = URI.create("https://localhost/downloads/file-1.zip");
+		var fileLink2 = URI.create("https://localhost/downloads/file-2.zip");
+		var fileLink3 = URI.create("https://localhost/downloads/file-3.zip");
+		var profile1 = createProfile("Profile 1", fileLink1);
+		var profile2 = createProfile("Profile 2", fileLink2);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient)) {
+			when(mockWebClient.saveToFile(nullable(URI.class), nullable(RequestOptions.class), nullable(Path.class))).thenReturn(new FileResult());
+
+			var daemon = new DownloaderDaemon(downloader, Duration.ofHours(1));
+			daemon.schedule(profile1);
+			daemon.schedule(profile2);
+			var thread = new Thread(daemon::run);
+			thread.start();
+			verify(mockWebClient, timeout(5000)).saveToFile(eq(fileLink1), nullable(RequestOptions.class), nullable(Path.class));
+			verify(mockWebClient, timeout(5000)).saveToFile(eq(fileLink2), nullable(RequestOptions.class), nullable(Path.class));
+
+			// Changed profile is checked at once, unchanged one waits for its interval
+			var changedProfile1 = createProfile("Profile 1", fileLink3);
+			daemon.update(new ProfileManager.Changes(List.of(), List.of(changedProfile1), List.of("Profile 2")));
+			verify(mockWebClient, timeout(5000)).saveToFile(eq(fileLink3), nullable(RequestOptions.class), nullable(Path.class));
+
+			daemon.stop();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+			verify(mockWebClient).saveToFile(eq(fileLink1), nullable(RequestOptions.class), nullable(Path.class));
+			verify(mockWebClient).saveToFile(eq(fileLink2), nullable(RequestOptions.class), nullable(Path.class));
+
+			// Invalid changed profile is not scheduled
+			daemon.update(new ProfileManager.Changes(List.of(), List.of(createProfile("Profile 1", null)), List.of()));
+			verify(mockWebClient, never()).saveToFile(eq(null), nullable(RequestOptions.class), nullable(Path.class));
+		}
+	}
+
+	@Test
+	void testUpdate_stopped() throws Exception {
+		try (var downloader = new Downloader(mock(WebClient.class))) {
+			var daemon = new DownloaderDaemon(downloader, Duration.ofHours(1));
+			daemon.schedule(createProfile("Profile 1", URI.create("https://localhost/downloads/file-1.zip")));
+
+			// Profiles reloaded after the stop signal do not keep the daemon waiting
+			daemon.stop();
+			daemon.update(new ProfileManager.Changes(List.of(), List.of(), List.of("Profile 1")));
+			var thread = new Thread(daemon::run);
+			thread.start();
+			thread.join(5000);
+			assertFalse(thread.isAlive());
+		}
+	}
+
+}
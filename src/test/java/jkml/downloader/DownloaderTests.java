@@ -1,8 +1,10 @@
 package jkml.downloader;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
@@ -11,8 +13,20 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.AfterEach;
@@ -21,13 +35,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import jkml.downloader.Downloader.Result;
+import jkml.downloader.cache.PageCache;
+import jkml.downloader.github.GitHubReleases;
 import jkml.downloader.http.FileResult;
 import jkml.downloader.http.RequestOptions;
+import jkml.downloader.http.TextResult;
 import jkml.downloader.http.WebClient;
 import jkml.downloader.http.WebClientException;
 import jkml.downloader.profile.Profile;
 import jkml.downloader.profile.Profile.Type;
+import jkml.downloader.state.StateStore;
 import jkml.downloader.util.StringUtils;
 import jkml.downloader.util.TestUtils;
 
@@ -69,6 +93,10 @@ class DownloaderTests {
 		return nullable(RequestOptions.class);
 	}
 
+	private static Predicate<CharSequence> anyStopCondition() {
+		return any();
+	}
+
 	private Downloader createDownloader(WebClient webClient) {
 		return new Downloader(webClient);
 	}
@@ -94,21 +122,129 @@ class DownloaderTests {
 		}
 	}
 
+	@Test
+	void testDownload_invalidPattern() throws Exception {
+		var path = outDir.resolve("profiles-invalid-pattern-run.json");
+		var outputDirectory = outDir.toString().replace("\\", "\\\\");
+		Files.writeString(path, """
+				[ { "name": "invalid", "pageUrl": "https://localhost/", "linkPattern": "href=\\"(.+", "outputDirectory": "%s" },
+				  { "name": "valid", "fileUrl": "https://localhost/file.zip", "outputDirectory": "%s" } ]""".formatted(
+				outputDirectory, outputDirectory));
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
+			when(mockWebClient.saveToFile(any(URI.class), anyRequestOptions(), any(Path.class))).thenReturn(file());
+
+			// Invalid pattern fails its profile only
+			downloader.download(path);
+
+			verify(mockWebClient).saveToFile(eq(URI.create("https://localhost/file.zip")), anyRequestOptions(), any(Path.class));
+			verify(mockWebClient, times(0)).getConditionalContent(any(URI.class), anyRequestOptions(), anyStopCondition());
+		}
+	}
+
 	@Test
 	void testDownload() throws Exception {
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
 			when(mockWebClient.getLocation(any(URI.class), anyRequestOptions())).thenReturn(URI.create("http://localhost/"));
-			when(mockWebClient.getContent(any(URI.class), anyRequestOptions())).thenReturn("");
+			when(mockWebClient.getConditionalContent(any(URI.class), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult("", null, null));
+			when(mockWebClient.saveToFile(any(URI.class), anyRequestOptions(), any(Path.class))).thenReturn(file());
+
+			downloader.download(inDir.resolve("profiles.json"));
+
+			verify(mockWebClient).getLocation(any(URI.class), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(any(URI.class), anyRequestOptions(), anyStopCondition());
+			verify(mockWebClient, times(2)).saveToFile(any(URI.class), anyRequestOptions(), any(Path.class));
+		}
+	}
+
+	private void testDownload_concurrent(DownloaderOptions options) throws Exception {
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.getLocation(any(URI.class), anyRequestOptions())).thenReturn(URI.create("http://localhost/"));
+			when(mockWebClient.getConditionalContent(any(URI.class), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult("", null, null));
 			when(mockWebClient.saveToFile(any(URI.class), anyRequestOptions(), any(Path.class))).thenReturn(file());
 
 			downloader.download(inDir.resolve("profiles.json"));
 
 			verify(mockWebClient).getLocation(any(URI.class), anyRequestOptions());
-			verify(mockWebClient, times(3)).getContent(any(URI.class), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(any(URI.class), anyRequestOptions(), anyStopCondition());
 			verify(mockWebClient, times(2)).saveToFile(any(URI.class), anyRequestOptions(), any(Path.class));
 		}
 	}
 
+	@Test
+	void testDownload_concurrent() throws Exception {
+		var options = new DownloaderOptions();
+		options.setConcurrency(4);
+		testDownload_concurrent(options);
+	}
+
+	@Test
+	void testDownload_virtualThreads() throws Exception {
+		var options = new DownloaderOptions();
+		options.setVirtualThreads(true);
+		options.setConcurrency(2);
+		testDownload_concurrent(options);
+	}
+
+	@Test
+	void testDownload_concurrentOverlap() throws Exception {
+		var names = List.of("a", "b", "c", "d");
+		var profiles = new ArrayList<Profile>();
+		for (var name : names) {
+			var profile = createProfile(Type.DIRECT);
+			profile.setName(name);
+			profile.setFileUrl(URI.create("https://localhost/downloads/" + name + ".zip"));
+			profiles.add(profile);
+		}
+
+		var options = new DownloaderOptions();
+		options.setConcurrency(names.size());
+
+		// Each download waits for the others to start, so they only complete if processed together
+		var started = new CountDownLatch(names.size());
+		var inFlight = new AtomicInteger();
+		var maxInFlight = new AtomicInteger();
+		var profileNames = new ConcurrentHashMap<String, String>();
+
+		var appender = new ListAppender<ILoggingEvent>();
+		var downloaderLogger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Downloader.class);
+		appender.start();
+		downloaderLogger.addAppender(appender);
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.saveToFile(any(URI.class), anyRequestOptions(), any(Path.class))).thenAnswer(invocation -> {
+				var fileName = invocation.<Path>getArgument(2).getFileName().toString();
+				profileNames.put(fileName, MDC.get(Downloader.MDC_PROFILE));
+				maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+				try {
+					started.countDown();
+					started.await(5, TimeUnit.SECONDS);
+					Thread.sleep(100);
+				} finally {
+					inFlight.decrementAndGet();
+				}
+				return switch (fileName) {
+				case "c.zip" -> throw new WebClientException("Mock exception");
+				case "d.zip" -> fileNotModified();
+				default -> file();
+				};
+			});
+
+			downloader.download(profiles);
+		} finally {
+			downloaderLogger.detachAppender(appender);
+		}
+
+		assertEquals(names.size(), maxInFlight.get());
+		assertEquals(Map.of("a.zip", "a", "b.zip", "b", "c.zip", "c", "d.zip", "d"), profileNames);
+
+		// Failure is attributed to its profile, and the summary to none
+		var failures = appender.list.stream().filter(e -> e.getLevel() == Level.ERROR).toList();
+		assertEquals("c", failures.get(0).getMDCPropertyMap().get(Downloader.MDC_PROFILE));
+		var summary = appender.list.stream().filter(e -> !e.getMDCPropertyMap().containsKey(Downloader.MDC_PROFILE))
+				.map(ILoggingEvent::getFormattedMessage).toList();
+		assertTrue(summary.containsAll(List.of("DOWNLOADED: 2", "UP_TO_DATE: 1", "FAILED: 1", "Failed profiles: c")));
+	}
+
 	private static void assertDownload(WebClient mock, URI uri, Path path) throws Exception {
 		verify(mock).saveToFile(eq(uri), anyRequestOptions(), eq(path));
 	}
@@ -124,7 +260,7 @@ class DownloaderTests {
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
 			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
 
-			downloader.download(profile);
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
 
 			assertDownload(mockWebClient, fileLink, filePath);
 		}
@@ -139,11 +275,11 @@ class DownloaderTests {
 		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/file-[.0-9]+\\.zip)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenThrow(new WebClientException("Mock exception"));
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenThrow(new WebClientException("Mock exception"));
 
-			downloader.download(profile);
+			assertEquals(Result.FAILED, downloader.download(profile));
 
-			verify(mockWebClient).getContent(eq(pageLink), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition());
 		}
 	}
 
@@ -157,11 +293,11 @@ class DownloaderTests {
 		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/file-[.0-9]+\\.zip)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
 
 			downloader.download(profile);
 
-			verify(mockWebClient).getContent(eq(pageLink), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition());
 		}
 	}
 
@@ -177,7 +313,7 @@ class DownloaderTests {
 		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/file-[.0-9]+\\.zip)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
 			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
 
 			downloader.download(profile);
@@ -186,6 +322,216 @@ class DownloaderTests {
 		}
 	}
 
+	@Test
+	void testDownload_pageCache() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file-1.0.zip");
+		var filePath = outDir.resolve("file-1.0.zip");
+		var pageLink = URI.create("https://localhost/downloads/page.html");
+		var pageHtml = "<a href=\"./file-1.0.zip\">Latest</a>";
+		var etag = "\"v1\"";
+
+		var profile = createProfile(Type.STANDARD);
+		profile.setPageUrl(pageLink);
+		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/file-[.0-9]+\\.zip)"));
+
+		var dataDir = outDir.resolve("data");
+		TestUtils.deleteDirectories(dataDir);
+		var options = new DownloaderOptions();
+		options.setDataDirectory(dataDir);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, etag, null));
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
+
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+		}
+		assertTrue(Files.exists(dataDir.resolve(PageCache.FILE_NAME)));
+
+		// Cached file info is used when page is not modified
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.getConditionalContent(eq(pageLink), argThat(o -> etag.equals(o.getIfNoneMatch())), anyStopCondition())).thenReturn(new TextResult());
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
+
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+
+			assertDownload(mockWebClient, fileLink, filePath);
+		}
+	}
+
+	@Test
+	void testDownload_state() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file.zip");
+		var filePath = outDir.resolve("file.zip");
+		var lastModified = Instant.parse("2015-10-21T07:28:00Z");
+		var etag = "\"v1\"";
+
+		var profile = createProfile(Type.DIRECT);
+		profile.setFileUrl(fileLink);
+
+		var dataDir = outDir.resolve("data");
+		TestUtils.deleteDirectories(dataDir);
+		Files.deleteIfExists(filePath);
+		var options = new DownloaderOptions();
+		options.setDataDirectory(dataDir);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenAnswer(invocation -> {
+				Files.writeString(filePath, "Hello");
+				return new FileResult(lastModified, etag);
+			});
+
+			assertEquals(Result.DOWNLOADED, downloader.download(profile));
+		}
+
+		// Saved validators are used even if the local file modified time has changed
+		Files.setLastModifiedTime(filePath, FileTime.from(Instant.now()));
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.saveToFile(eq(fileLink), argThat(o -> etag.equals(o.getIfNoneMatch()) && lastModified.equals(o.getIfModifiedSince())), eq(filePath))).thenReturn(fileNotModified());
+
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+		}
+
+		// Local file with a different size is downloaded again
+		Files.writeString(filePath, "Hello world!");
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.saveToFile(eq(fileLink), argThat(RequestOptions::isUnconditional), eq(filePath))).thenThrow(new WebClientException("Mock exception"));
+
+			assertEquals(Result.FAILED, downloader.download(profile));
+		}
+
+		try (var stateStore = new StateStore(dataDir)) {
+			stateStore.load();
+			var state = stateStore.get(profile.getName());
+			assertEquals(fileLink, state.fileUrl());
+			assertEquals(etag, state.etag());
+			assertEquals(5, state.size());
+			assertEquals(1, state.failureCount());
+		}
+	}
+
+	@Test
+	void testDownload_checksum() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file.zip");
+		var checksumLink = URI.create("https://localhost/downloads/SHA256SUMS");
+		var filePath = outDir.resolve("file.zip");
+		var sha256 = "c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a";
+
+		var profile = createProfile(Type.DIRECT);
+		profile.setFileUrl(fileLink);
+		profile.setChecksumUrl(checksumLink);
+
+		var dataDir = outDir.resolve("data");
+		TestUtils.deleteDirectories(dataDir);
+		var options = new DownloaderOptions();
+		options.setDataDirectory(dataDir);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.getConditionalContent(eq(checksumLink), anyRequestOptions(), anyStopCondition()))
+					.thenReturn(new TextResult("0".repeat(64) + "  other.zip\n" + sha256 + "  file.zip\n", null, null));
+			when(mockWebClient.saveToFile(eq(fileLink), argThat(o -> sha256.equals(o.getChecksum())), eq(filePath)))
+					.thenReturn(new FileResult(Instant.now(), null, sha256));
+
+			assertEquals(Result.DOWNLOADED, downloader.download(profile));
+		}
+
+		try (var stateStore = new StateStore(dataDir)) {
+			stateStore.load();
+			assertEquals(sha256, stateStore.get(profile.getName()).sha256());
+		}
+
+		// File is not downloaded without its checksum
+		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
+			when(mockWebClient.getConditionalContent(eq(checksumLink), anyRequestOptions(), anyStopCondition()))
+					.thenReturn(new TextResult("0".repeat(64) + "  other.zip\n", null, null));
+
+			assertEquals(Result.FAILED, downloader.download(profile));
+			verify(mockWebClient, times(0)).saveToFile(any(URI.class), anyRequestOptions(), any(Path.class));
+		}
+	}
+
+	@Test
+	void testDownload_blobStore() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file.zip");
+		var sha256 = "c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a";
+
+		var dataDir = outDir.resolve("data");
+		TestUtils.deleteDirectories(dataDir);
+		var options = new DownloaderOptions();
+		options.setDataDirectory(dataDir);
+		options.setBlobStore(true);
+
+		var profile1 = createProfile(Type.DIRECT);
+		profile1.setFileUrl(fileLink);
+		profile1.setChecksum(sha256);
+		profile1.setOutputDirectory(outDir.resolve("blob1"));
+		var filePath1 = profile1.getOutputDirectory().resolve("file.zip");
+		var profile2 = createProfile(Type.DIRECT);
+		profile2.setName("Something else");
+		profile2.setFileUrl(fileLink);
+		profile2.setChecksum(sha256);
+		profile2.setOutputDirectory(outDir.resolve("blob2"));
+		var filePath2 = profile2.getOutputDirectory().resolve("file.zip");
+		TestUtils.deleteDirectories(profile1.getOutputDirectory());
+		TestUtils.deleteDirectories(profile2.getOutputDirectory());
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath1))).thenAnswer(invocation -> {
+				Files.createDirectories(filePath1.getParent());
+				Files.writeString(filePath1, "Hello world!");
+				return new FileResult(Instant.now(), null, sha256);
+			});
+
+			assertEquals(Result.DOWNLOADED, downloader.download(profile1));
+			// Stored content is used without a request
+			assertEquals(Result.DOWNLOADED, downloader.download(profile2));
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile1));
+			verify(mockWebClient, times(1)).saveToFile(any(URI.class), anyRequestOptions(), any(Path.class));
+		}
+
+		assertTrue(Files.isSameFile(filePath1, filePath2));
+		assertEquals("Hello world!", Files.readString(filePath2));
+	}
+
+	@Test
+	void testGetCheckInterval() {
+		var interval = Duration.ofHours(1);
+		assertEquals(interval, Downloader.getCheckInterval(interval, 0));
+		assertEquals(Duration.ofHours(2), Downloader.getCheckInterval(interval, 1));
+		assertEquals(Duration.ofHours(8), Downloader.getCheckInterval(interval, 3));
+		assertEquals(Duration.ofHours(8), Downloader.getCheckInterval(interval, 100));
+	}
+
+	@Test
+	void testDownload_checkInterval() throws Exception {
+		var fileLink = URI.create("https://localhost/downloads/file.zip");
+		var filePath = outDir.resolve("file.zip");
+
+		var profile = createProfile(Type.DIRECT);
+		profile.setFileUrl(fileLink);
+		profile.setCheckInterval(Duration.ofHours(1));
+
+		var dataDir = outDir.resolve("data");
+		TestUtils.deleteDirectories(dataDir);
+		var options = new DownloaderOptions();
+		options.setDataDirectory(dataDir);
+		options.setSkipRecentlyChecked(true);
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenThrow(new WebClientException("Mock exception")).thenReturn(fileNotModified());
+
+			// Failed profile is checked again
+			assertEquals(Result.FAILED, downloader.download(profile));
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+			assertEquals(Result.SKIPPED, downloader.download(profile));
+
+			// Profile without interval is always checked
+			profile.setCheckInterval(null);
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+
+			verify(mockWebClient, times(3)).saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath));
+		}
+	}
+
 	@Test
 	void testDownload_versionInFileLink() throws Exception {
 		var fileLink = URI.create("https://localhost/downloads/1.0/file.zip");
@@ -198,7 +544,7 @@ class DownloaderTests {
 		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/([.0-9]+)/file\\.zip)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
 			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
 
 			downloader.download(profile);
@@ -220,7 +566,7 @@ class DownloaderTests {
 		profile.setVersionPattern(Pattern.compile("Version (\\d\\.\\d)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
 			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
 
 			downloader.download(profile);
@@ -240,11 +586,11 @@ class DownloaderTests {
 		profile.setVersionPattern(Pattern.compile("Version (\\d\\.\\d)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
 
 			downloader.download(profile);
 
-			verify(mockWebClient).getContent(eq(pageLink), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition());
 		}
 	}
 
@@ -260,13 +606,13 @@ class DownloaderTests {
 		profile.setVersionPattern(Pattern.compile("Version (\\d\\.\\d)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
-			when(mockWebClient.getContent(eq(pageFragmentLink), anyRequestOptions())).thenThrow(new WebClientException("Mock exception"));
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
+			when(mockWebClient.getContentAsync(eq(pageFragmentLink), anyRequestOptions())).thenReturn(CompletableFuture.failedFuture(new WebClientException("Mock exception")));
 
 			downloader.download(profile);
 
-			verify(mockWebClient).getContent(eq(pageLink), anyRequestOptions());
-			verify(mockWebClient).getContent(eq(pageFragmentLink), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition());
+			verify(mockWebClient).getContentAsync(eq(pageFragmentLink), anyRequestOptions());
 		}
 	}
 
@@ -283,13 +629,13 @@ class DownloaderTests {
 		profile.setVersionPattern(Pattern.compile("Version (\\d\\.\\d)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
-			when(mockWebClient.getContent(eq(pageFragmentLink), anyRequestOptions())).thenReturn(pageFragmentHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
+			when(mockWebClient.getContentAsync(eq(pageFragmentLink), anyRequestOptions())).thenReturn(CompletableFuture.completedFuture(pageFragmentHtml));
 
 			downloader.download(profile);
 
-			verify(mockWebClient).getContent(eq(pageLink), anyRequestOptions());
-			verify(mockWebClient).getContent(eq(pageFragmentLink), anyRequestOptions());
+			verify(mockWebClient).getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition());
+			verify(mockWebClient).getContentAsync(eq(pageFragmentLink), anyRequestOptions());
 		}
 	}
 
@@ -308,8 +654,8 @@ class DownloaderTests {
 		profile.setVersionPattern(Pattern.compile("Version (\\d\\.\\d)"));
 
 		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
-			when(mockWebClient.getContent(eq(pageLink), anyRequestOptions())).thenReturn(pageHtml);
-			when(mockWebClient.getContent(eq(pageFragmentLink), anyRequestOptions())).thenReturn(pageFragmentHtml);
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
+			when(mockWebClient.getContentAsync(eq(pageFragmentLink), anyRequestOptions())).thenReturn(CompletableFuture.completedFuture(pageFragmentHtml));
 			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
 
 			downloader.download(profile);
@@ -318,6 +664,134 @@ class DownloaderTests {
 		}
 	}
 
+	@Test
+	void testDownload_GitHub_multiplePageFragments() throws Exception {
+		var pageLink = URI.create("https://localhost/downloads/page.html");
+		var fragmentLinks = new ArrayList<URI>();
+		var pageHtml = new StringBuilder();
+		var futures = new ArrayList<CompletableFuture<String>>();
+		for (var i = 0; i < 8; ++i) {
+			var fragmentLink = URI.create("https://localhost/account/project/releases/expanded_assets/v1." + i);
+			fragmentLinks.add(fragmentLink);
+			pageHtml.append("<include-fragment loading=\"lazy\" src=\"").append(fragmentLink).append("\" >");
+			futures.add(new CompletableFuture<>());
+		}
+		var fileLink = URI.create("https://localhost/downloads/v1.1/file.zip");
+		var filePath = outDir.resolve("file-1.1.zip");
+
+		var profile = createProfile(Type.GITHUB);
+		profile.setPageUrl(pageLink);
+		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/v([.0-9]+)/file\\.zip)"));
+
+		// Second fragment contains the link and completes before the first one
+		futures.get(1).complete("<a href=\"./v1.1/file.zip\">");
+		futures.get(2).complete("<a href=\"./v1.2/file.zip\">");
+		futures.get(0).completeAsync(() -> "No link in page fragment", CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml.toString(), null, null));
+			for (var i = 0; i < fragmentLinks.size(); ++i) {
+				when(mockWebClient.getContentAsync(eq(fragmentLinks.get(i)), anyRequestOptions())).thenReturn(futures.get(i));
+			}
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
+
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+
+			assertDownload(mockWebClient, fileLink, filePath);
+			// Requests are bounded and the ones after the matching fragment are cancelled
+			verify(mockWebClient, times(Downloader.MAX_FRAGMENT_REQUESTS + 1)).getContentAsync(any(URI.class), anyRequestOptions());
+			assertTrue(futures.get(3).isCancelled());
+			assertTrue(futures.get(4).isCancelled());
+		}
+	}
+
+	@Test
+	void testDownload_GitHubApi() throws Exception {
+		var pageLink = URI.create("https://github.com/owner/project/releases");
+		var apiLink = URI.create("https://api.github.com/repos/owner/project/releases");
+		var json = """
+				[{ "tag_name": "v1.0", "html_url": "https://github.com/owner/project/releases/tag/v1.0", "assets": [
+					{ "name": "file.zip", "browser_download_url": "https://github.com/owner/project/releases/download/v1.0/file.zip" }
+				] }]
+				""";
+		var fileLink = URI.create("https://github.com/owner/project/releases/download/v1.0/file.zip");
+		var filePath = outDir.resolve("file-1.0.zip");
+
+		var profile = createProfile(Type.GITHUB);
+		profile.setPageUrl(pageLink);
+		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/download/v([.0-9]+)/file\\.zip)"));
+
+		var options = new DownloaderOptions();
+		options.setGitHubToken("token");
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = new Downloader(mockWebClient, options)) {
+			when(mockWebClient.getConditionalContent(eq(apiLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(json, null, null));
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
+
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+
+			assertDownload(mockWebClient, fileLink, filePath);
+			verify(mockWebClient).getConditionalContent(eq(apiLink),
+					argThat(o -> GitHubReleases.MEDIA_TYPE.equals(o.getAccept()) && "Bearer token".equals(o.getAuthorization())),
+					anyStopCondition());
+			verify(mockWebClient, times(0)).getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition());
+		}
+	}
+
+	@Test
+	void testDownload_GitHubApi_rateLimited() throws Exception {
+		var names = List.of("project1", "project2");
+		var profiles = new ArrayList<Profile>();
+		for (var name : names) {
+			var profile = createProfile(Type.GITHUB);
+			profile.setName(name);
+			profile.setPageUrl(URI.create("https://github.com/owner/" + name + "/releases"));
+			profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/download/v([.0-9]+)/file\\.zip)"));
+			profiles.add(profile);
+		}
+		var pageHtml = "<a href=\"/owner/project/releases/download/v1.0/file.zip\">";
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
+			for (var name : names) {
+				when(mockWebClient.getConditionalContent(eq(URI.create("https://api.github.com/repos/owner/" + name + "/releases")), anyRequestOptions(), anyStopCondition()))
+						.thenThrow(new WebClientException("Mock exception", 403));
+				when(mockWebClient.getConditionalContent(eq(URI.create("https://github.com/owner/" + name + "/releases")), anyRequestOptions(), anyStopCondition()))
+						.thenReturn(new TextResult(pageHtml, null, null));
+			}
+			when(mockWebClient.saveToFile(any(URI.class), anyRequestOptions(), any(Path.class))).thenReturn(fileNotModified());
+
+			downloader.download(profiles);
+
+			// API is not called again once it has refused a request
+			verify(mockWebClient).getConditionalContent(eq(URI.create("https://api.github.com/repos/owner/project1/releases")), anyRequestOptions(), anyStopCondition());
+			verify(mockWebClient, times(0)).getConditionalContent(eq(URI.create("https://api.github.com/repos/owner/project2/releases")), anyRequestOptions(), anyStopCondition());
+			verify(mockWebClient, times(2)).saveToFile(any(URI.class), anyRequestOptions(), any(Path.class));
+		}
+	}
+
+	@Test
+	void testDownload_GitHubApi_fallback() throws Exception {
+		var pageLink = URI.create("https://github.com/owner/project/releases");
+		var apiLink = URI.create("https://api.github.com/repos/owner/project/releases");
+		var pageHtml = "<a href=\"/owner/project/releases/download/v1.0/file.zip\">";
+		var fileLink = URI.create("https://github.com/owner/project/releases/download/v1.0/file.zip");
+		var filePath = outDir.resolve("file-1.0.zip");
+
+		var profile = createProfile(Type.GITHUB);
+		profile.setPageUrl(pageLink);
+		profile.setLinkPattern(Pattern.compile("href=\"([^\"]+/download/v([.0-9]+)/file\\.zip)"));
+
+		try (var mockWebClient = mock(WebClient.class); var downloader = createDownloader(mockWebClient)) {
+			when(mockWebClient.getConditionalContent(eq(apiLink), anyRequestOptions(), anyStopCondition())).thenThrow(new WebClientException("Mock exception"));
+			when(mockWebClient.getConditionalContent(eq(pageLink), anyRequestOptions(), anyStopCondition())).thenReturn(new TextResult(pageHtml, null, null));
+			when(mockWebClient.saveToFile(eq(fileLink), anyRequestOptions(), eq(filePath))).thenReturn(fileNotModified());
+
+			assertEquals(Result.UP_TO_DATE, downloader.download(profile));
+
+			assertDownload(mockWebClient, fileLink, filePath);
+		}
+	}
+
 	@Test
 	void testDownload_redirect_noLink() throws Exception {
 		var redirectLink = URI.create("https://localhost/downloads/api");
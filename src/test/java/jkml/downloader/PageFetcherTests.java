@@ -0,0 +1,122 @@
+package jkml.downloader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.http.RequestOptions;
+import jkml.downloader.http.Status;
+import jkml.downloader.http.TextResult;
+import jkml.downloader.http.UserAgent;
+import jkml.downloader.http.WebClient;
+import jkml.downloader.http.WebClientException;
+
+class PageFetcherTests {
+
+	private static final URI PAGE_URI = URI.create("https://site.com/page.html");
+
+	private static Predicate<CharSequence> anyStopCondition() {
+		return any();
+	}
+
+	@Test
+	void testKey() {
+		var options = new RequestOptions();
+		assertEquals(PageFetcher.Key.of(PAGE_URI, options), PageFetcher.Key.of(PAGE_URI, new RequestOptions()));
+
+		var otherOptions = new RequestOptions();
+		otherOptions.setUserAgent(UserAgent.CURL);
+		assertNotEquals(PageFetcher.Key.of(PAGE_URI, options), PageFetcher.Key.of(PAGE_URI, otherOptions));
+	}
+
+	@Test
+	void testFetch_concurrent() throws Exception {
+		var mockWebClient = mock(WebClient.class);
+		var started = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		var page = new TextResult("<html>", null, null);
+		when(mockWebClient.getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), anyStopCondition()))
+				.thenAnswer(invocation -> {
+					started.countDown();
+					release.await();
+					return page;
+				});
+
+		var pageFetcher = new PageFetcher(mockWebClient);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Callable<TextResult> task = () -> pageFetcher.fetch(PAGE_URI, new RequestOptions(), null);
+			var futures = new ArrayList<Future<TextResult>>();
+			futures.add(executor.submit(task));
+			started.await();
+			futures.add(executor.submit(task));
+			futures.add(executor.submit(task));
+			release.countDown();
+			for (var future : futures) {
+				assertSame(page, future.get());
+			}
+		}
+
+		verify(mockWebClient).getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), anyStopCondition());
+	}
+
+	@Test
+	void testFetch_partial() throws Exception {
+		var mockWebClient = mock(WebClient.class);
+		var partialPage = new TextResult(Status.OK, "<a>1</a>", null, null, true);
+		var fullPage = new TextResult("<a>1</a><a>2</a>", null, null);
+		when(mockWebClient.getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), anyStopCondition()))
+				.thenReturn(partialPage);
+		when(mockWebClient.getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), isNull()))
+				.thenReturn(fullPage);
+
+		var pageFetcher = new PageFetcher(mockWebClient);
+		Predicate<CharSequence> firstLink = text -> text.toString().contains("<a>1</a>");
+		Predicate<CharSequence> secondLink = text -> text.toString().contains("<a>2</a>");
+
+		assertSame(partialPage, pageFetcher.fetch(PAGE_URI, new RequestOptions(), firstLink));
+		// Partial page is enough for a profile whose stop condition holds for it
+		assertSame(partialPage, pageFetcher.fetch(PAGE_URI, new RequestOptions(), firstLink));
+		// Full page is retrieved for other profiles and shared from then on
+		assertSame(fullPage, pageFetcher.fetch(PAGE_URI, new RequestOptions(), secondLink));
+		assertSame(fullPage, pageFetcher.fetch(PAGE_URI, new RequestOptions(), null));
+
+		verify(mockWebClient, times(2)).getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), anyStopCondition());
+	}
+
+	@Test
+	void testFetch_failure() throws Exception {
+		var mockWebClient = mock(WebClient.class);
+		var page = new TextResult("<html>", null, null);
+		when(mockWebClient.getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), anyStopCondition()))
+				.thenThrow(new WebClientException("Mock exception")).thenReturn(page);
+
+		var pageFetcher = new PageFetcher(mockWebClient);
+		var options = new RequestOptions();
+		assertThrows(WebClientException.class, () -> pageFetcher.fetch(PAGE_URI, options, null));
+		// Failure is not shared
+		assertSame(page, pageFetcher.fetch(PAGE_URI, options, null));
+
+		pageFetcher.clear();
+		assertSame(page, pageFetcher.fetch(PAGE_URI, options, null));
+		verify(mockWebClient, times(3)).getConditionalContent(eq(PAGE_URI), any(RequestOptions.class), anyStopCondition());
+	}
+
+}
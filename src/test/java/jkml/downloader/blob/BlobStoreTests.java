@@ -0,0 +1,120 @@
+package jkml.downloader.blob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.util.TestUtils;
+
+class BlobStoreTests {
+
+	private static final Path dataDir = TestUtils.outputDirectory().resolve("blob");
+
+	private static final String CONTENT = "Hello world!";
+
+	private static final String SHA256 = "c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a";
+
+	private final BlobStore blobStore = new BlobStore(dataDir);
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		TestUtils.deleteDirectories(dataDir);
+		Files.createDirectories(dataDir);
+	}
+
+	@Test
+	void testAdd() throws IOException {
+		var path1 = Files.writeString(dataDir.resolve("file1.txt"), CONTENT);
+		var path2 = Files.writeString(dataDir.resolve("file2.txt"), CONTENT);
+		assertFalse(blobStore.contains(SHA256));
+
+		blobStore.add(path1, SHA256);
+		blobStore.add(path2, SHA256);
+
+		assertTrue(blobStore.contains(SHA256));
+		assertTrue(blobStore.isLinked(path1, SHA256));
+		assertTrue(blobStore.isLinked(path2, SHA256));
+		assertTrue(Files.isSameFile(path1, path2));
+		assertEquals(CONTENT, Files.readString(path2));
+	}
+
+	@Test
+	void testAdd_sizeMismatch() throws IOException {
+		var path1 = Files.writeString(dataDir.resolve("file1.txt"), CONTENT);
+		var path2 = Files.writeString(dataDir.resolve("file2.txt"), "Other content");
+
+		blobStore.add(path1, SHA256);
+		blobStore.add(path2, SHA256);
+
+		assertFalse(blobStore.isLinked(path2, SHA256));
+		assertEquals("Other content", Files.readString(path2));
+	}
+
+	@Test
+	void testCopyTo() throws IOException {
+		var path1 = Files.writeString(dataDir.resolve("file1.txt"), CONTENT);
+		var path2 = dataDir.resolve("output").resolve("file2.txt");
+		assertFalse(blobStore.copyTo(SHA256, path2));
+		assertFalse(Files.exists(path2));
+
+		blobStore.add(path1, SHA256);
+
+		assertTrue(blobStore.copyTo(SHA256, path2));
+		assertEquals(CONTENT, Files.readString(path2));
+		// Copy can be modified without affecting the files linked to the blob
+		assertFalse(blobStore.isLinked(path2, SHA256));
+	}
+
+	@Test
+	void testLinkTo() throws IOException {
+		var path1 = Files.writeString(dataDir.resolve("file1.txt"), CONTENT);
+		var path2 = dataDir.resolve("output").resolve("file2.txt");
+		assertFalse(blobStore.linkTo(SHA256, path2));
+		assertFalse(Files.exists(path2));
+
+		blobStore.add(path1, SHA256);
+
+		assertTrue(blobStore.linkTo(SHA256, path2));
+		assertEquals(CONTENT, Files.readString(path2));
+		assertTrue(blobStore.isLinked(path2, SHA256));
+		assertFalse(Files.exists(path2.resolveSibling("file2.txt.link")));
+	}
+
+	@Test
+	void testCopyTo_modifiedBlob() throws IOException {
+		var path1 = Files.writeString(dataDir.resolve("file1.txt"), CONTENT);
+		var path2 = dataDir.resolve("file2.txt");
+		blobStore.add(path1, SHA256);
+
+		// Modifying a linked file in place modifies the blob
+		Files.writeString(blobStore.getBlobPath(SHA256), "Hello World!");
+
+		assertFalse(blobStore.copyTo(SHA256, path2));
+		assertFalse(Files.exists(path2));
+		assertFalse(blobStore.contains(SHA256));
+		assertFalse(blobStore.linkTo(SHA256, path2));
+	}
+
+	@Test
+	void testAdd_modifiedBlob() throws IOException {
+		var path1 = Files.writeString(dataDir.resolve("file1.txt"), CONTENT);
+		var path2 = Files.writeString(dataDir.resolve("file2.txt"), CONTENT);
+		blobStore.add(path1, SHA256);
+		Files.writeString(path1, "Hello World!");
+
+		blobStore.add(path2, SHA256);
+
+		// Downloaded file replaces the modified blob
+		assertTrue(blobStore.isLinked(path2, SHA256));
+		assertFalse(blobStore.isLinked(path1, SHA256));
+		assertEquals(CONTENT, Files.readString(path2));
+	}
+
+}
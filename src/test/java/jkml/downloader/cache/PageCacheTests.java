@@ -0,0 +1,79 @@
+package jkml.downloader.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.html.FileInfo;
+import jkml.downloader.util.TestUtils;
+
+class PageCacheTests {
+
+	private static final URI PAGE_URI = URI.create("https://localhost/page.html");
+
+	private static final String SCRAPE_KEY = PageCache.getScrapeKey("href=\"([^\"]+)\"", "FIRST", "null");
+
+	private static final FileInfo FILE_INFO = new FileInfo(URI.create("https://localhost/file-1.0.zip"), "1.0");
+
+	private static final Path dataDir = TestUtils.outputDirectory().resolve("cache");
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		TestUtils.deleteDirectories(dataDir);
+	}
+
+	@Test
+	void testSaveAndLoad() throws IOException {
+		var lastModified = Instant.parse("2015-10-21T07:28:00Z");
+		var cache = new PageCache(dataDir);
+		cache.update(PAGE_URI, "\"v1\"", lastModified);
+		cache.putFileInfo(PAGE_URI, SCRAPE_KEY, FILE_INFO);
+		cache.save();
+
+		var loaded = new PageCache(dataDir);
+		loaded.load();
+		var entry = loaded.get(PAGE_URI);
+		assertEquals("\"v1\"", entry.etag());
+		assertEquals(lastModified, entry.lastModified());
+		assertEquals(FILE_INFO, entry.fileInfos().get(SCRAPE_KEY));
+	}
+
+	@Test
+	void testUpdate() {
+		var cache = new PageCache(dataDir);
+		cache.update(PAGE_URI, "\"v1\"", null);
+		cache.putFileInfo(PAGE_URI, SCRAPE_KEY, FILE_INFO);
+
+		// Same validators keep file info
+		cache.update(PAGE_URI, "\"v1\"", null);
+		assertEquals(FILE_INFO, cache.get(PAGE_URI).fileInfos().get(SCRAPE_KEY));
+
+		// Changed validators discard file info
+		cache.update(PAGE_URI, "\"v2\"", null);
+		assertTrue(cache.get(PAGE_URI).fileInfos().isEmpty());
+
+		// Page without validators is not cached
+		cache.update(PAGE_URI, null, null);
+		assertNull(cache.get(PAGE_URI));
+	}
+
+	@Test
+	void testLoad_invalidFile() throws IOException {
+		Files.createDirectories(dataDir);
+		Files.writeString(dataDir.resolve(PageCache.FILE_NAME), "[");
+
+		var cache = new PageCache(dataDir);
+		cache.load();
+		assertNull(cache.get(PAGE_URI));
+	}
+
+}
@@ -0,0 +1,68 @@
+package jkml.downloader.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonParseException;
+
+class GitHubReleasesTests {
+
+	private final GitHubReleases gitHubReleases = new GitHubReleases(GitHubReleases.DEFAULT_API_URI);
+
+	@Test
+	void testGetApiUri() {
+		assertEquals(URI.create("https://api.github.com/repos/owner/project/releases"),
+				gitHubReleases.getApiUri(URI.create("https://github.com/owner/project/releases")));
+		assertEquals(URI.create("https://api.github.com/repos/owner/project/releases/latest"),
+				gitHubReleases.getApiUri(URI.create("https://github.com/owner/project/releases/latest")));
+		assertEquals(URI.create("https://api.github.com/repos/owner/project/releases/tags/v1.0"),
+				gitHubReleases.getApiUri(URI.create("https://github.com/owner/project/releases/tag/v1.0")));
+
+		assertNull(gitHubReleases.getApiUri(URI.create("https://github.com/owner/project")));
+		assertNull(gitHubReleases.getApiUri(URI.create("https://localhost/owner/project/releases")));
+	}
+
+	@Test
+	void testToHtml() {
+		var json = """
+				[
+					{
+						"tag_name": "v2.0",
+						"html_url": "https://github.com/owner/project/releases/tag/v2.0",
+						"draft": true,
+						"assets": []
+					},
+					{
+						"tag_name": "v1.0",
+						"html_url": "https://github.com/owner/project/releases/tag/v1.0",
+						"draft": false,
+						"assets": [
+							{
+								"name": "file-1.0.zip",
+								"browser_download_url": "https://github.com/owner/project/releases/download/v1.0/file-1.0.zip"
+							}
+						]
+					}
+				]
+				""";
+		var expected = """
+				<a href="/owner/project/releases/tag/v1.0">v1.0</a>
+				<a href="/owner/project/releases/download/v1.0/file-1.0.zip">file-1.0.zip</a>
+				""";
+		assertEquals(expected, GitHubReleases.toHtml(json));
+
+		// Single release
+		json = """
+				{ "tag_name": "v1.0", "html_url": "https://github.com/owner/project/releases/tag/v1.0" }
+				""";
+		assertEquals("<a href=\"/owner/project/releases/tag/v1.0\">v1.0</a>\n", GitHubReleases.toHtml(json));
+
+		assertThrows(JsonParseException.class, () -> GitHubReleases.toHtml("<html>"));
+	}
+
+}
@@ -0,0 +1,65 @@
+package jkml.downloader.html;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class ChecksumFinderTests {
+
+	private static final String SHA256_1 = "c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a";
+
+	private static final String SHA256_2 = "0".repeat(64);
+
+	@Test
+	void testIsSha256() {
+		assertTrue(ChecksumFinder.isSha256(SHA256_1));
+		assertTrue(ChecksumFinder.isSha256(SHA256_1.toUpperCase(Locale.ROOT)));
+		assertFalse(ChecksumFinder.isSha256(null));
+		assertFalse(ChecksumFinder.isSha256(SHA256_1.substring(1)));
+		assertFalse(ChecksumFinder.isSha256("g" + SHA256_1.substring(1)));
+	}
+
+	@Test
+	void testFind_checksumFile() {
+		assertEquals(SHA256_1, ChecksumFinder.find(SHA256_1.toUpperCase(Locale.ROOT) + "\n", null, "file.zip"));
+		assertEquals(SHA256_1, ChecksumFinder.find(SHA256_1 + "  file.zip", null, "file.zip"));
+
+		var sums = SHA256_2 + "  other.zip\r\n" + SHA256_1 + " *file.zip\r\n";
+		assertEquals(SHA256_1, ChecksumFinder.find(sums, null, "file.zip"));
+		assertNull(ChecksumFinder.find(sums, null, "missing.zip"));
+		assertNull(ChecksumFinder.find(SHA256_2 + "  other.zip", null, "file.zip"));
+		assertNull(ChecksumFinder.find(SHA256_1 + "\n" + SHA256_2, null, "file.zip"));
+		assertNull(ChecksumFinder.find("no checksum", null, "file.zip"));
+	}
+
+	@Test
+	void testFind_similarFileNames() {
+		var sums = SHA256_2 + "  file.zip.asc\n" + SHA256_2 + " *file.zip.sig\n" + SHA256_2 + "  myfile.zip\n" + SHA256_1
+				+ " *file.zip\n";
+		assertEquals(SHA256_1, ChecksumFinder.find(sums, null, "file.zip"));
+		assertEquals(SHA256_2, ChecksumFinder.find(sums, null, "myfile.zip"));
+		assertNull(ChecksumFinder.find(SHA256_2 + "  file.zip.asc", null, "file.zip"));
+
+		assertEquals(SHA256_1, ChecksumFinder.find(SHA256_1 + "  ./dist/file.zip", null, "file.zip"));
+		assertEquals(SHA256_1, ChecksumFinder.find(SHA256_1 + "  my file.zip", null, "my file.zip"));
+		assertEquals(SHA256_1, ChecksumFinder.find("SHA256 (file.zip.sig) = " + SHA256_2 + "\nSHA256 (file.zip) = " + SHA256_1,
+				null, "file.zip"));
+		assertEquals(SHA256_1, ChecksumFinder.find("file.zip: " + SHA256_1, null, "file.zip"));
+	}
+
+	@Test
+	void testFind_pattern() {
+		var html = "<td>file.zip</td><td>SHA-256: " + SHA256_1 + "</td>";
+		assertEquals(SHA256_1, ChecksumFinder.find(html, Pattern.compile("SHA-256: (\\w+)"), "file.zip"));
+		assertEquals(SHA256_1, ChecksumFinder.find(html, Pattern.compile("[0-9a-f]{64}"), "file.zip"));
+		assertNull(ChecksumFinder.find(html, Pattern.compile("SHA-256: (\\w{4})"), "file.zip"));
+		assertNull(ChecksumFinder.find(html, Pattern.compile("MD5: (\\w+)"), "file.zip"));
+	}
+
+}
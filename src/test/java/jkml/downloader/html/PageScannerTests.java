@@ -0,0 +1,119 @@
+package jkml.downloader.html;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class PageScannerTests {
+
+	private static void assertPrefix(String expected, String regex) {
+		assertEquals(expected, PageScanner.getLiteralPrefix(Pattern.compile(regex)));
+	}
+
+	@Test
+	void testGetLiteralPrefix() {
+		assertPrefix("href=\"", "href=\"([^\"]+/file\\.zip)");
+		assertPrefix("<b>File v", "<b>File v([.0-9]+)</b>");
+		assertPrefix("a.b", "a\\.b\\d");
+		assertPrefix("ab", "abc?");
+		assertPrefix("ab", "abc*");
+		assertPrefix("ab", "abc{0,2}");
+		assertPrefix("abc", "abc+d");
+		assertPrefix("", "(a)b");
+		assertPrefix("", "^ab");
+		assertPrefix("", "\\Qab\\E");
+		assertPrefix("", "ab|cd");
+		assertPrefix("ab", "ab(c|d)");
+		assertPrefix("ab", "ab[|]");
+		assertEquals("", PageScanner.getLiteralPrefix(Pattern.compile("ab", Pattern.CASE_INSENSITIVE)));
+	}
+
+	private static void assertSameMatch(MatchResult expected, MatchResult actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertEquals(expected.start(), actual.start());
+		assertEquals(expected.end(), actual.end());
+		assertEquals(expected.group(), actual.group());
+	}
+
+	private static void assertScan(String text, List<Pattern> patterns) {
+		var targets = new ArrayList<PageScanner.Target>();
+		for (var pattern : patterns) {
+			targets.add(new PageScanner.Target(pattern, Occurrence.FIRST));
+			targets.add(new PageScanner.Target(pattern, Occurrence.LAST));
+		}
+		var matches = new PageScanner(targets).scan(text);
+
+		for (var pattern : patterns) {
+			var matcher = pattern.matcher(text);
+			MatchResult first = null;
+			MatchResult last = null;
+			while (matcher.find()) {
+				last = matcher.toMatchResult();
+				if (first == null) {
+					first = last;
+				}
+			}
+			assertSameMatch(first, matches.get(pattern, Occurrence.FIRST));
+			assertSameMatch(last, matches.get(pattern, Occurrence.LAST));
+		}
+	}
+
+	@Test
+	void testScan() {
+		var text = "<a href=\"v1/file.zip\">File v1</a> aaaa <a href=\"v2/file.zip\">File v2</a>\nab abab";
+		assertScan(text, List.of(Pattern.compile("href=\"([^\"]+/file\\.zip)"), Pattern.compile(">File v([0-9]+)<"),
+				Pattern.compile("aa"), Pattern.compile("a(?=b)"), Pattern.compile("(?<=<)a "),
+				Pattern.compile("^ab", Pattern.MULTILINE), Pattern.compile("ab|b "), Pattern.compile("x*"),
+				Pattern.compile("FILE", Pattern.CASE_INSENSITIVE), Pattern.compile("not found")));
+	}
+
+	@Test
+	void testScan_nonAscii() {
+		// Prefixes sharing suffixes exercise the failure links outside the ASCII root table
+		var text = "x\u00e91 \u65e5\u672c\u65e5\u672c\u8a9e a\u65e5b\u65e5\u672c \u00e9\u00e92";
+		assertScan(text, List.of(Pattern.compile("\u00e9([0-9])"), Pattern.compile("\u65e5\u672c\u8a9e"),
+				Pattern.compile("\u672c"), Pattern.compile("a\u65e5b"), Pattern.compile("b\u65e5\u672c"),
+				Pattern.compile("\u00e9\u00e9")));
+	}
+
+	@Test
+	void testScan_budgetExceeded() {
+		var text = "a".repeat(40) + "!";
+		var slowPattern = Pattern.compile("(.*a){12}b");
+		var pattern = Pattern.compile("a!");
+		var matches = new PageScanner(List.of(new PageScanner.Target(slowPattern, Occurrence.FIRST),
+				new PageScanner.Target(pattern, Occurrence.FIRST))).scan(text);
+
+		var exception = assertThrows(PatternBudgetException.class, () -> matches.get(slowPattern, Occurrence.FIRST));
+		assertTrue(exception.getMessage().contains(slowPattern.pattern()));
+		// Other patterns are not affected
+		assertEquals(39, matches.get(pattern, Occurrence.FIRST).start());
+	}
+
+	@Test
+	void testScan_firstOnly() {
+		var pattern = Pattern.compile("b([0-9])");
+		var matches = new PageScanner(List.of(new PageScanner.Target(pattern, null))).scan("ab1 ab2");
+
+		assertTrue(matches.contains(pattern, Occurrence.FIRST));
+		assertFalse(matches.contains(pattern, Occurrence.LAST));
+		assertFalse(matches.contains(Pattern.compile("b([0-9])"), Occurrence.FIRST));
+		assertEquals("1", matches.get(pattern, null).group(1));
+
+		var otherPattern = Pattern.compile("c");
+		assertThrows(IllegalArgumentException.class, () -> matches.get(otherPattern, Occurrence.FIRST));
+	}
+
+}
@@ -1,10 +1,13 @@
 package jkml.downloader.html;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.URI;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.AfterEach;
@@ -71,6 +74,57 @@ class PageScraperTests {
 		assertEquals("2.0", fileInfo.version());
 	}
 
+	@Test
+	void testExtractFileInfo_sharedMatches() {
+		var baseUri = URI.create("https://localhost/dir1");
+		var html = "<a href=\"dir2/v1.0/file.txt\">File v2.0</a>\n<a href=\"dir4/v3.0/file.txt\">Other v4.0</a>";
+		var linkPattern = Pattern.compile("href=\"([^\"]+/file\\.txt)");
+		var versionPattern = Pattern.compile(">File v([.0-9]+)<");
+		var matches = new PageScanner(List.of(new PageScanner.Target(linkPattern, Occurrence.FIRST),
+				new PageScanner.Target(linkPattern, Occurrence.LAST), new PageScanner.Target(versionPattern, null)))
+				.scan(html);
+		var scraper = new PageScraper(baseUri, html, matches);
+
+		var fileInfo = scraper.extractFileInfo(linkPattern, Occurrence.FIRST, versionPattern);
+		assertEquals("https://localhost/dir2/v1.0/file.txt", fileInfo.uri().toString());
+		assertEquals("2.0", fileInfo.version());
+
+		fileInfo = scraper.extractFileInfo(linkPattern, Occurrence.LAST, null);
+		assertEquals("https://localhost/dir4/v3.0/file.txt", fileInfo.uri().toString());
+
+		// Pattern not covered by the matches
+		fileInfo = scraper.extractFileInfo(Pattern.compile("href=\"([^\"]+/v([.0-9]+)/file\\.txt)"), Occurrence.LAST, null);
+		assertEquals("3.0", fileInfo.version());
+	}
+
+	@Test
+	void testCreateStopCondition() {
+		var linkPattern = Pattern.compile("href=\"([^\"]+/file-[.0-9]+\\.zip)\"");
+		var versionPattern = Pattern.compile(">Version ([.0-9]+)<");
+
+		assertNull(PageScraper.createStopCondition(linkPattern, Occurrence.LAST, null));
+
+		var condition = PageScraper.createStopCondition(linkPattern, Occurrence.FIRST, null);
+		assertFalse(condition.test("<a href=\"dir/file-1.0.zip"));
+		assertTrue(condition.test("<a href=\"dir/file-1.0.zip\">"));
+
+		// Match of greedy quantifier at end of text may still change
+		condition = PageScraper.createStopCondition(linkPattern, null, versionPattern);
+		assertFalse(condition.test("<a href=\"dir/file-1.0.zip\"><b>Version 1."));
+		assertTrue(condition.test("<a href=\"dir/file-1.0.zip\"><b>Version 1.0</b>"));
+	}
+
+	@Test
+	void testExtractFileInfo_budgetExceeded() {
+		var scraper = new PageScraper(URI.create("https://localhost/"), "<a href=\"" + "a".repeat(40));
+		var linkPattern = Pattern.compile("href=\"((.*a){12}/file\\.zip)");
+		assertThrows(PatternBudgetException.class, () -> scraper.extractFileInfo(linkPattern, Occurrence.FIRST, null));
+
+		// Download is stopped as the pattern would fail on more content too
+		var condition = PageScraper.createStopCondition(linkPattern, Occurrence.FIRST, null);
+		assertTrue(condition.test("<a href=\"" + "a".repeat(40)));
+	}
+
 	@Test
 	void testExtractVersion() {
 		var scraper = new PageScraper(URI.create("https://localhost/"), "<a>Exist 1.0</a>");
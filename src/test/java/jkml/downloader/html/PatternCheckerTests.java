@@ -0,0 +1,33 @@
+package jkml.downloader.html;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PatternCheckerTests {
+
+	@Test
+	void testHasNestedQuantifiers() {
+		assertTrue(PatternChecker.hasNestedQuantifiers("(a+)+"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("x(a*)*y"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("(\\w+\\s*)*$"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("(?:.*?)+"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("(?<v>a+){2,}"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("((a+))+"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("(b|a+)*c"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("(?i)(a+)+"));
+		assertTrue(PatternChecker.hasNestedQuantifiers("(\\w+/?)+"));
+
+		assertFalse(PatternChecker.hasNestedQuantifiers("href=\"([^\"]+/file\\.zip)"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("[0-9]+(\\.[0-9]+)*"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("([0-9]+\\.)+"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("(a+)?"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("(a+){2,5}"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("(a++)+"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("[(a+)]+"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("\\(a+\\)+"));
+		assertFalse(PatternChecker.hasNestedQuantifiers("\\Q(a+)\\E+"));
+	}
+
+}
@@ -0,0 +1,126 @@
+package jkml.downloader.http;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.util.TestUtils;
+
+class CoalescingWriterTests {
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private static final Path outDir = TestUtils.outputDirectory();
+
+	private final Path path = outDir.resolve("coalesced.bin");
+
+	private static byte[] createContent(int length) {
+		var content = new byte[length];
+		for (var i = 0; i < length; ++i) {
+			content[i] = (byte) i;
+		}
+		return content;
+	}
+
+	/**
+	 * Write the content in chunks of the size, as received from a response
+	 */
+	private static void writeChunks(CoalescingWriter writer, byte[] content, int chunkSize) throws IOException {
+		for (var i = 0; i < content.length; i += chunkSize) {
+			writer.write(ByteBuffer.wrap(content, i, Math.min(chunkSize, content.length - i)));
+		}
+	}
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	void testWrite() throws IOException {
+		var pool = new WriteBufferPool(BUFFER_SIZE, BUFFER_SIZE);
+		var content = createContent(3 * BUFFER_SIZE + 100);
+
+		try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			var writer = new CoalescingWriter(channel, pool);
+			writeChunks(writer, content, 8192);
+			writer.flush();
+			writer.release();
+		}
+
+		assertArrayEquals(content, Files.readAllBytes(path));
+		var stats = pool.getStats();
+		assertEquals(content.length, stats.byteCount());
+		// Each full buffer and the rest are written at once
+		assertEquals(4, stats.writeCount());
+		assertEquals(0, stats.inUseCount());
+	}
+
+	@Test
+	void testWrite_largeChunk() throws IOException {
+		var pool = new WriteBufferPool(BUFFER_SIZE, BUFFER_SIZE);
+		var content = createContent(2 * BUFFER_SIZE);
+
+		try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			var writer = new CoalescingWriter(channel, pool);
+			writer.write(ByteBuffer.wrap(content, 0, 100));
+			// Gathered with the buffered content in one write
+			writer.write(ByteBuffer.wrap(content, 100, content.length - 100));
+			writer.flush();
+			writer.release();
+		}
+
+		assertArrayEquals(content, Files.readAllBytes(path));
+		assertEquals(1, pool.getStats().writeCount());
+	}
+
+	@Test
+	void testWrite_position() throws IOException {
+		var pool = new WriteBufferPool(BUFFER_SIZE, 2L * BUFFER_SIZE);
+		var content = createContent(BUFFER_SIZE + 100);
+		var half = content.length / 2;
+
+		try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			var writer1 = new CoalescingWriter(channel, 0, pool);
+			var writer2 = new CoalescingWriter(channel, half, pool);
+			writeChunks(writer2, Arrays.copyOfRange(content, half, content.length), 1000);
+			writeChunks(writer1, Arrays.copyOfRange(content, 0, half), 1000);
+			writer1.flush();
+			writer2.flush();
+			writer1.release();
+			writer2.release();
+		}
+
+		assertArrayEquals(content, Files.readAllBytes(path));
+		assertEquals(2, pool.getStats().writeCount());
+	}
+
+	@Test
+	void testWrite_noBuffer() throws IOException {
+		// Memory cap allows no buffer
+		var pool = new WriteBufferPool(BUFFER_SIZE, BUFFER_SIZE - 1);
+		var content = createContent(10000);
+
+		try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			var writer = new CoalescingWriter(channel, pool);
+			writeChunks(writer, content, 1000);
+			writer.flush();
+			writer.release();
+		}
+
+		assertArrayEquals(content, Files.readAllBytes(path));
+		assertEquals(10, pool.getStats().writeCount());
+	}
+
+}
@@ -0,0 +1,90 @@
+package jkml.downloader.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+import org.apache.hc.core5.http.ContentType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ContentValidatorsTests {
+
+	private static ByteBuffer toBuffer(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String checkHead(String fileName, ByteBuffer head) {
+		for (var validator : ContentValidators.create(fileName)) {
+			var reason = validator.checkHead(head.duplicate());
+			if (reason != null) {
+				return reason;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	void testCreate() {
+		assertEquals(2, ContentValidators.create("file.zip").size());
+		assertEquals(1, ContentValidators.create("file.txt").size());
+		assertEquals(1, ContentValidators.create("file").size());
+		assertEquals(0, ContentValidators.create("index.HTML").size());
+	}
+
+	@Test
+	void testMagicBytes() {
+		var zip = ByteBuffer.wrap(HexFormat.of().parseHex("504b03041400"));
+
+		assertNull(checkHead("file.zip", zip));
+		assertNull(checkHead("FILE.JAR", zip));
+		assertNotNull(checkHead("file.zip", toBuffer("Hello world!")));
+		assertNotNull(checkHead("file.7z", zip));
+		// Content shorter than the magic bytes
+		assertNotNull(checkHead("file.7z", ByteBuffer.wrap(new byte[] { 0x37 })));
+		// Unknown format
+		assertNull(checkHead("file.bin", zip));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "<!DOCTYPE html><html>", "<html lang=\"en\">", "\r\n  <head>", "\uFEFF<body>" })
+	void testIsHtml(String text) {
+		assertTrue(ContentValidators.isHtml(toBuffer(text)));
+		assertNotNull(checkHead("file.txt", toBuffer(text)));
+		assertNull(checkHead("file.html", toBuffer(text)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "Hello world!", "<?xml version=\"1.0\"?>", "<htm" })
+	void testIsHtml_notHtml(String text) {
+		assertFalse(ContentValidators.isHtml(toBuffer(text)));
+	}
+
+	@Test
+	void testNotHtml_contentType() {
+		assertNotNull(ContentValidators.notHtml(true).checkResponse(ContentType.TEXT_HTML, 100));
+		assertNull(ContentValidators.notHtml(true).checkResponse(ContentType.APPLICATION_OCTET_STREAM, 100));
+		assertNull(ContentValidators.notHtml(true).checkResponse(null, 100));
+		// Content type alone is not trusted for files of other formats
+		assertNull(ContentValidators.notHtml(false).checkResponse(ContentType.TEXT_HTML, 100));
+	}
+
+	@Test
+	void testMinimumSize() {
+		var validator = ContentValidators.minimumSize(10);
+
+		assertNull(validator.checkResponse(null, -1));
+		assertNull(validator.checkResponse(null, 10));
+		assertNotNull(validator.checkResponse(null, 9));
+		assertNull(validator.checkLength(10));
+		assertNotNull(validator.checkLength(9));
+	}
+
+}
@@ -1,12 +1,19 @@
 package jkml.downloader.http;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpStatus;
@@ -55,6 +62,22 @@ class FileResponseHandlerTests {
 		logger.info("Exception message: {}", ex.getMessage());
 	}
 
+	@Test
+	void testGetValidator() {
+		var response = new BasicHttpResponse(HttpStatus.SC_OK);
+		assertNull(FileResponseHandler.getValidator(response));
+
+		response.setHeader(HttpHeaders.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", FileResponseHandler.getValidator(response));
+
+		// Weak ETag cannot be used in If-Range
+		response.setHeader(HttpHeaders.ETAG, "W/\"v1\"");
+		assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", FileResponseHandler.getValidator(response));
+
+		response.setHeader(HttpHeaders.ETAG, "\"v1\"");
+		assertEquals("\"v1\"", FileResponseHandler.getValidator(response));
+	}
+
 	@Test
 	void testCheckFileContent() throws IOException {
 		// Target file does not exist
@@ -84,4 +107,114 @@ class FileResponseHandlerTests {
 		assertTrue(ioException.getMessage().contains("smaller"));
 	}
 
+	private static BasicHttpResponse createFileResponse(long contentLength) {
+		var response = new BasicHttpResponse(HttpStatus.SC_OK);
+		response.setHeader(HttpHeaders.ETAG, "\"v1\"");
+		if (contentLength >= 0) {
+			response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(contentLength));
+		}
+		return response;
+	}
+
+	private static ByteBuffer toBuffer(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void testPreallocate() throws IOException {
+		var uri = URI.create("https://localhost/target.txt");
+		var partialPath = FileResponseHandler.getPartialPath(uri, target);
+		Files.deleteIfExists(target);
+
+		var handler = new FileResponseHandler(uri, target);
+		handler.doStart(createFileResponse(12), null);
+		assertEquals(12, Files.size(partialPath));
+		handler.data(toBuffer("Hello "), false);
+		handler.releaseResources();
+
+		// Interrupted transfer leaves only the content received for resumption
+		assertEquals("Hello ", Files.readString(partialPath));
+		assertTrue(Files.exists(FileResponseHandler.getValidatorPath(partialPath)));
+
+		handler = new FileResponseHandler(uri, target);
+		handler.doStart(createFileResponse(12), null);
+		handler.data(toBuffer("Hello "), false);
+		var stream = toBuffer("world");
+		var finalHandler = handler;
+		assertThrows(ResponseException.class, () -> finalHandler.data(stream, true));
+		handler.releaseResources();
+		assertEquals("Hello world", Files.readString(partialPath));
+		assertFalse(Files.exists(target));
+
+		Files.deleteIfExists(partialPath);
+		Files.deleteIfExists(FileResponseHandler.getValidatorPath(partialPath));
+	}
+
+	@Test
+	void testCompleteFile_durability() throws IOException {
+		for (var durability : Durability.values()) {
+			Files.writeString(source, "Hello world!");
+
+			FileResponseHandler.completeFile(source, target, null, null, durability);
+
+			assertFalse(Files.exists(source));
+			assertEquals("Hello world!", Files.readString(target));
+		}
+	}
+
+	@Test
+	void testDoStart_smallerThanExistingFile() throws IOException {
+		var uri = URI.create("https://localhost/target.txt");
+		var partialPath = FileResponseHandler.getPartialPath(uri, target);
+		Files.writeString(target, "Hello world!");
+		Files.deleteIfExists(partialPath);
+
+		var handler = new FileResponseHandler(uri, target);
+		var response = createFileResponse(5);
+
+		// Rejected before any content is received
+		assertThrows(ResponseException.class, () -> handler.doStart(response, null));
+		assertFalse(Files.exists(partialPath));
+		assertEquals("Hello world!", Files.readString(target));
+	}
+
+	@Test
+	void testData_rejectedHead() throws IOException {
+		var uri = URI.create("https://localhost/target.zip");
+		var path = outDir.resolve("target.zip");
+		var partialPath = FileResponseHandler.getPartialPath(uri, path);
+		Files.deleteIfExists(path);
+
+		var handler = new FileResponseHandler(uri, path, new RequestOptions(), ContentValidators.create("target.zip"),
+				null, null);
+		handler.doStart(createFileResponse(-1), null);
+		handler.data(toBuffer("<!DOCTYPE html><html><body>"), false);
+		// Rejected once the head is received, before the end of the content
+		var stream = toBuffer("Not Found".repeat(100));
+		assertThrows(ResponseException.class, () -> handler.data(stream, false));
+		handler.releaseResources();
+
+		// Rejected content is neither used nor resumed
+		assertFalse(Files.exists(path));
+		assertFalse(Files.exists(partialPath));
+		assertFalse(Files.exists(FileResponseHandler.getValidatorPath(partialPath)));
+	}
+
+	@Test
+	void testData_minimumSize() throws IOException {
+		var uri = URI.create("https://localhost/target.txt");
+		Files.deleteIfExists(target);
+
+		var handler = new FileResponseHandler(uri, target, new RequestOptions(),
+				List.of(ContentValidators.minimumSize(100)), null, null);
+		handler.doStart(createFileResponse(-1), null);
+		handler.data(toBuffer("Hello "), false);
+		var stream = toBuffer("world!");
+		assertThrows(ResponseException.class, () -> handler.data(stream, true));
+		handler.releaseResources();
+
+		assertFalse(Files.exists(target));
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(uri, target)));
+	}
+
 }
@@ -0,0 +1,135 @@
+package jkml.downloader.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+
+class HostLimiterTests {
+
+	private static final URI HOST1_URI = URI.create("https://host1/file.zip");
+
+	private static final URI HOST2_URI = URI.create("https://HOST2/file.zip");
+
+	@Test
+	void testConstructor() {
+		var interval = Duration.ZERO;
+		assertThrows(IllegalArgumentException.class, () -> new HostLimiter(0, interval));
+	}
+
+	@Test
+	void testGetHost() {
+		assertEquals("host2", HostLimiter.getHost(HOST2_URI));
+		assertEquals("", HostLimiter.getHost(URI.create("file.zip")));
+	}
+
+	@Test
+	void testAcquire_maxRequests() {
+		try (var limiter = new HostLimiter(2, Duration.ZERO)) {
+			var permit1 = limiter.acquire(HOST1_URI);
+			var permit2 = limiter.acquire(HOST1_URI);
+			var permit3 = limiter.acquire(HOST1_URI);
+			var otherHostPermit = limiter.acquire(HOST2_URI);
+
+			assertTrue(permit1.isDone());
+			assertTrue(permit2.isDone());
+			assertFalse(permit3.isDone());
+			assertTrue(otherHostPermit.isDone());
+
+			var stats = limiter.getStats().get(0);
+			assertEquals("host1", stats.host());
+			assertEquals(2, stats.activeCount());
+			assertEquals(1, stats.queueDepth());
+
+			permit1.join().close();
+			permit3.join().close();
+
+			stats = limiter.getStats().get(0);
+			assertEquals(1, stats.activeCount());
+			assertEquals(0, stats.queueDepth());
+			assertEquals(3, stats.requestCount());
+		}
+	}
+
+	@Test
+	void testAcquire_minInterval() {
+		var interval = Duration.ofMillis(100);
+		try (var limiter = new HostLimiter(2, interval)) {
+			var start = System.nanoTime();
+			limiter.acquire(HOST1_URI).join();
+			var permit = limiter.acquire(HOST1_URI).join();
+			var otherHostPermit = limiter.acquire(HOST2_URI).join();
+			var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+			assertTrue(elapsed.compareTo(interval) >= 0);
+			assertTrue(permit.getWaitTime().compareTo(interval.dividedBy(2)) > 0);
+			assertTrue(otherHostPermit.getWaitTime().compareTo(interval.dividedBy(2)) < 0);
+		}
+	}
+
+	@Test
+	void testAcquire_cancelled() {
+		try (var limiter = new HostLimiter(1, Duration.ZERO)) {
+			var permit1 = limiter.acquire(HOST1_URI);
+			var permit2 = limiter.acquire(HOST1_URI);
+			var permit3 = limiter.acquire(HOST1_URI);
+
+			// Cancelled request leaves the queue at once
+			permit2.cancel(false);
+			assertEquals(1, limiter.getStats().get(0).queueDepth());
+			permit1.join().close();
+
+			// Slot of cancelled request is passed on to the next one
+			assertTrue(permit3.isDone());
+			var stats = limiter.getStats().get(0);
+			assertEquals(1, stats.activeCount());
+			assertEquals(0, stats.queueDepth());
+			assertEquals(2, stats.requestCount());
+
+			// Closing a permit more than once has no effect
+			permit3.join().close();
+			permit3.join().close();
+			assertEquals(0, limiter.getStats().get(0).activeCount());
+		}
+	}
+
+	@Test
+	void testAcquire_cancelledMinInterval() {
+		var interval = Duration.ofMillis(200);
+		try (var limiter = new HostLimiter(1, interval)) {
+			var permit1 = limiter.acquire(HOST1_URI);
+			var permit2 = limiter.acquire(HOST1_URI);
+			var permit3 = limiter.acquire(HOST1_URI);
+
+			// Cancelled request does not take a start slot
+			permit2.cancel(false);
+			permit1.join().close();
+			assertTrue(permit3.join().getWaitTime().compareTo(interval.multipliedBy(2)) < 0);
+		}
+	}
+
+	@Test
+	void testClose() {
+		var limiter = new HostLimiter(1, Duration.ofSeconds(10));
+		var permit1 = limiter.acquire(HOST1_URI);
+		var permit2 = limiter.acquire(HOST1_URI);
+		var permit3 = limiter.acquire(HOST1_URI);
+		assertTrue(permit1.isDone());
+
+		// Hand-over of the second permit is scheduled after the interval
+		permit1.join().close();
+		assertFalse(permit2.isDone());
+
+		limiter.close();
+		assertThrows(CompletionException.class, permit2::join);
+		assertThrows(CompletionException.class, permit3::join);
+		assertThrows(CompletionException.class, limiter.acquire(HOST1_URI)::join);
+	}
+
+}
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import java.net.URI;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HexFormat;
 
 import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.http.HttpHeaders;
@@ -108,6 +110,30 @@ class HttpUtilsTests {
 		assertEquals(expected, value);
 	}
 
+	@Test
+	void testGetContentRangeStart() {
+		var response = createResponseWithHeader(HttpHeaders.CONTENT_RANGE, "bytes 6-11/12");
+
+		assertEquals(6, HttpUtils.getContentRangeStart(response));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "bytes */12", "bytes x-11/12", "items 6-11/12" })
+	void testGetContentRangeStart_invalid(String arg) {
+		var response = createResponseWithHeader(HttpHeaders.CONTENT_RANGE, arg);
+
+		assertEquals(-1, HttpUtils.getContentRangeStart(response));
+		assertEquals(-1, HttpUtils.getContentRangeStart(createResponse()));
+	}
+
+	@Test
+	void testGetContentLength() {
+		assertEquals(12, HttpUtils.getContentLength(createResponseWithHeader(HttpHeaders.CONTENT_LENGTH, "12")));
+		assertEquals(-1, HttpUtils.getContentLength(createResponseWithHeader(HttpHeaders.CONTENT_LENGTH, "-1")));
+		assertEquals(-1, HttpUtils.getContentLength(createResponseWithHeader(HttpHeaders.CONTENT_LENGTH, "x")));
+		assertEquals(-1, HttpUtils.getContentLength(createResponse()));
+	}
+
 	@Test
 	void testGetParameter() {
 		var expected = "archive.zip";
@@ -137,6 +163,24 @@ class HttpUtilsTests {
 		assertNull(value);
 	}
 
+	@Test
+	void testGetSha256Digest() {
+		var hex = "c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a";
+		var base64 = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(hex));
+
+		assertEquals(hex, HttpUtils.getSha256Digest(createResponseWithHeader(HttpUtils.REPR_DIGEST, "sha-256=:" + base64 + ":")));
+		assertEquals(hex, HttpUtils.getSha256Digest(
+				createResponseWithHeader(HttpUtils.REPR_DIGEST, "sha-512=:AAAA:, sha-256=:" + base64 + ":")));
+		assertEquals(hex, HttpUtils.getSha256Digest(createResponseWithHeader(HttpUtils.DIGEST, "SHA-256=" + base64)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "sha-256", "sha-256=", "sha-256=:AAAA:", "sha-256=:not base64:", "sha-512=:AAAA:" })
+	void testGetSha256Digest_invalid(String arg) {
+		assertNull(HttpUtils.getSha256Digest(createResponseWithHeader(HttpUtils.REPR_DIGEST, arg)));
+		assertNull(HttpUtils.getSha256Digest(createResponse()));
+	}
+
 	@Test
 	void testGetUri() {
 		var expected = URI.create("https://localhost/");
@@ -0,0 +1,20 @@
+package jkml.downloader.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.http.SegmentedDownload.Segment;
+
+class SegmentedDownloadTests {
+
+	@Test
+	void testSplit() {
+		assertEquals(List.of(new Segment(0, 3), new Segment(4, 7), new Segment(8, 11)), SegmentedDownload.split(12, 3));
+		assertEquals(List.of(new Segment(0, 2), new Segment(3, 5), new Segment(6, 9)), SegmentedDownload.split(10, 3));
+		assertEquals(List.of(new Segment(0, 0), new Segment(1, 1)), SegmentedDownload.split(2, 4));
+	}
+
+}
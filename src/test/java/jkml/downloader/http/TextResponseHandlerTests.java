@@ -1,10 +1,15 @@
 package jkml.downloader.http;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpHeaders;
@@ -24,7 +29,7 @@ class TextResponseHandlerTests {
 		try {
 			handler.start(response, null);
 			handler.data(buffer, true);
-			assertEquals(text, handler.buildResult());
+			assertEquals(text, handler.buildResult().text());
 		} finally {
 			handler.releaseResources();
 		}
@@ -42,7 +47,100 @@ class TextResponseHandlerTests {
 		try {
 			handler.start(response, contentType);
 			handler.data(buffer, true);
-			assertEquals(text, handler.buildResult());
+			assertEquals(text, handler.buildResult().text());
+		} finally {
+			handler.releaseResources();
+		}
+	}
+
+	@Test
+	void testBuildResult_invalidContentLength() throws IOException {
+		var text = "hello";
+
+		for (var contentLength : new String[] { "abc", "-1", "99999999999999999999" }) {
+			var response = new BasicHttpResponse(HttpStatus.SC_OK);
+			response.addHeader(HttpHeaders.CONTENT_LENGTH, contentLength);
+			var buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+
+			var handler = new TextResponseHandler();
+			try {
+				handler.start(response, null);
+				handler.data(buffer, true);
+				assertEquals(text, handler.buildResult().text());
+			} finally {
+				handler.releaseResources();
+			}
+		}
+	}
+
+	@Test
+	void testBuildResult_splitCharacter() throws IOException {
+		var text = "caf\u00e9 \u20ac";
+		var bytes = text.getBytes(StandardCharsets.UTF_8);
+		var response = new BasicHttpResponse(HttpStatus.SC_OK);
+
+		var handler = new TextResponseHandler();
+		try {
+			handler.start(response, null);
+			// Feed one byte at a time so multi-byte characters span chunks
+			for (var i = 0; i < bytes.length; ++i) {
+				handler.data(ByteBuffer.wrap(bytes, i, 1), i == bytes.length - 1);
+			}
+			assertEquals(text, handler.buildResult().text());
+		} finally {
+			handler.releaseResources();
+		}
+	}
+
+	@Test
+	void testData_stopCondition() throws IOException {
+		var response = new BasicHttpResponse(HttpStatus.SC_OK);
+		var chunk = ByteBuffer.wrap("x".repeat(8192).getBytes(StandardCharsets.US_ASCII));
+
+		var handler = new TextResponseHandler(text -> text.length() >= 16384);
+		try {
+			handler.start(response, null);
+			handler.data(chunk.duplicate(), false);
+			assertFalse(handler.isStopped());
+			assertThrows(ResponseHandler.StopException.class, () -> handler.data(chunk.duplicate(), false));
+			assertTrue(handler.isStopped());
+			var result = handler.getStoppedResult();
+			assertEquals(16384, result.text().length());
+			assertTrue(result.partial());
+		} finally {
+			handler.releaseResources();
+		}
+	}
+
+	@Test
+	void testBuildResult_validators() throws IOException {
+		var response = new BasicHttpResponse(HttpStatus.SC_OK);
+		response.addHeader(HttpHeaders.ETAG, "\"v1\"");
+		response.addHeader(HttpHeaders.LAST_MODIFIED, "Wed, 21 Oct 2015 07:28:00 GMT");
+
+		var handler = new TextResponseHandler();
+		try {
+			handler.start(response, null);
+			handler.data(ByteBuffer.wrap(new byte[0]), true);
+			var result = handler.buildResult();
+			assertEquals(Status.OK, result.status());
+			assertEquals("\"v1\"", result.etag());
+			assertEquals(Instant.parse("2015-10-21T07:28:00Z"), result.lastModified());
+		} finally {
+			handler.releaseResources();
+		}
+	}
+
+	@Test
+	void testBuildResult_notModified() throws IOException {
+		var response = new BasicHttpResponse(HttpStatus.SC_NOT_MODIFIED);
+
+		var handler = new TextResponseHandler();
+		try {
+			handler.start(response, null);
+			var result = handler.buildResult();
+			assertEquals(Status.NOT_MODIFIED, result.status());
+			assertNull(result.text());
 		} finally {
 			handler.releaseResources();
 		}
@@ -1,13 +1,17 @@
 package jkml.downloader.http;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
 import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
 import static com.github.tomakehurst.wiremock.client.WireMock.seeOther;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -18,6 +22,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.hc.client5.http.utils.DateUtils;
 import org.apache.hc.core5.http.HttpHeaders;
@@ -31,7 +40,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
 import jkml.downloader.util.FileUtils;
 import jkml.downloader.util.StringUtils;
@@ -47,6 +58,8 @@ class WebClientTests {
 
 	private static URI mockUrl;
 
+	private static final String CONTENT_SHA256 = "c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a";
+
 	private WebClient webClient;
 
 	@RegisterExtension
@@ -78,6 +91,14 @@ class WebClientTests {
 		assertEquals(defaultUserAgent, request.getFirstHeader(HttpHeaders.USER_AGENT));
 		assertNull(request.getFirstHeader(HttpHeaders.REFERER));
 		assertNull(request.getFirstHeader(HttpHeaders.IF_MODIFIED_SINCE));
+		assertEquals(Headers.ACCEPT, request.getFirstHeader(HttpHeaders.ACCEPT));
+		assertNull(request.getFirstHeader(HttpHeaders.AUTHORIZATION));
+
+		options.setAccept("application/json");
+		options.setAuthorization("Bearer token");
+		request = webClient.createRequest(mockUrl, options);
+		assertEquals("application/json", request.getFirstHeader(HttpHeaders.ACCEPT).getValue());
+		assertEquals("Bearer token", request.getFirstHeader(HttpHeaders.AUTHORIZATION).getValue());
 
 		options.setUserAgent(UserAgent.CHROME);
 		request = webClient.createRequest(mockUrl, options);
@@ -95,6 +116,18 @@ class WebClientTests {
 		request = webClient.createRequest(mockUrl, options);
 		assertEquals(DateUtils.formatStandardDate(options.getIfModifiedSince()),
 				request.getFirstHeader(HttpHeaders.IF_MODIFIED_SINCE).getValue());
+		assertNull(request.getFirstHeader(HttpHeaders.IF_NONE_MATCH));
+		assertNull(request.getFirstHeader(HttpHeaders.RANGE));
+
+		options.setIfNoneMatch("W/\"v1\"");
+		request = webClient.createRequest(mockUrl, options);
+		assertEquals("W/\"v1\"", request.getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue());
+
+		options.setRangeStart(100);
+		options.setIfRange("\"v1\"");
+		request = webClient.createRequest(mockUrl, options);
+		assertEquals("bytes=100-", request.getFirstHeader(HttpHeaders.RANGE).getValue());
+		assertEquals("\"v1\"", request.getFirstHeader(HttpHeaders.IF_RANGE).getValue());
 	}
 
 	@Test
@@ -104,13 +137,73 @@ class WebClientTests {
 		var result = webClient.getContent(mockUrl, new RequestOptions());
 
 		assertFalse(StringUtils.isNullOrBlank(result));
+		assertEquals(1, webClient.getHostStats().get(0).requestCount());
 	}
 
 	@Test
 	void testGetContent_Failure() {
 		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(notFound()));
 
-		assertThrows(WebClientException.class, () -> webClient.getContent(mockUrl, new RequestOptions()));
+		var options = new RequestOptions();
+		var ex = assertThrows(WebClientException.class, () -> webClient.getContent(mockUrl, options));
+		assertEquals(404, ex.getStatusCode());
+	}
+
+	@Test
+	void testGetContent_StopCondition() throws Exception {
+		var body = "<a href=\"file.zip\">" + "x".repeat(1024 * 1024);
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok(body)));
+
+		var result = webClient.getContent(mockUrl, new RequestOptions(), text -> text.toString().contains("file.zip"));
+
+		assertTrue(result.startsWith("<a href=\"file.zip\">"));
+		assertTrue(result.length() < body.length());
+	}
+
+	@Test
+	void testGetContentAsync_Success() throws Exception {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Hello world!")));
+
+		var result = webClient.getContentAsync(mockUrl, new RequestOptions()).get();
+
+		assertEquals("Hello world!", result);
+	}
+
+	@Test
+	void testGetContentAsync_Failure() {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(notFound()));
+
+		var future = webClient.getContentAsync(mockUrl, new RequestOptions());
+		var ex = assertThrows(ExecutionException.class, future::get);
+		assertInstanceOf(WebClientException.class, ex.getCause());
+	}
+
+	@Test
+	void testSaveToFileAsync_chained() throws Exception {
+		var fileUrlPath = MOCK_URL_PATH + ".txt";
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok(fileUrlPath)));
+		wireMockExt.stubFor(get(urlPathEqualTo(fileUrlPath)).willReturn(
+				ok("Hello world!").withHeader(HttpHeaders.LAST_MODIFIED, DateUtils.formatStandardDate(Instant.now()))));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl) + ".txt");
+		Files.deleteIfExists(localFilePath);
+
+		var result = webClient.getContentAsync(mockUrl, new RequestOptions())
+				.thenCompose(path -> webClient.saveToFileAsync(mockUrl.resolve(path), new RequestOptions(), localFilePath))
+				.get();
+
+		assertEquals(Status.OK, result.status());
+		assertTrue(Files.exists(localFilePath));
+	}
+
+	@Test
+	void testGetLocationAsync_Success() throws Exception {
+		var location = "http://localhost/file.txt";
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(seeOther(location)));
+
+		var result = webClient.getLocationAsync(mockUrl, new RequestOptions()).get();
+
+		assertEquals(URI.create(location), result);
 	}
 
 	private void testSaveToFile_OK(boolean directoryExists) throws Exception {
@@ -156,6 +249,472 @@ class WebClientTests {
 		assertTrue(Files.exists(localFilePath));
 	}
 
+	@Test
+	void testSaveToFile_ETag() throws Exception {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Hello world!").withHeader(HttpHeaders.ETAG, "W/\"v1\"")));
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("W/\"v1\""))
+				.willReturn(aResponse().withStatus(304)));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+
+		// Response without Last-Modified header is accepted if it has an ETag header
+		var result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+		assertEquals(Status.OK, result.status());
+		assertNull(result.lastModified());
+		assertTrue(result.etag().startsWith("W/\"v1"));
+		assertEquals(result.etag(), Files.readString(FileResponseHandler.getETagPath(localFilePath)));
+
+		result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+		assertEquals(Status.NOT_MODIFIED, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+	}
+
+	@Test
+	void testSaveToFile_GivenValidators() throws Exception {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Hello world!").withHeader(HttpHeaders.ETAG, "\"v2\"")));
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"v1\""))
+				.willReturn(aResponse().withStatus(304)));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.writeString(localFilePath, StringUtils.EMPTY);
+		Files.writeString(FileResponseHandler.getETagPath(localFilePath), "\"v2\"");
+
+		// Validators given take precedence over those of the local file
+		var options = new RequestOptions();
+		options.setIfNoneMatch("\"v1\"");
+		assertEquals(Status.NOT_MODIFIED, webClient.saveToFile(mockUrl, options, localFilePath).status());
+
+		// No validator is sent for an unconditional download
+		options = new RequestOptions();
+		options.setIfNoneMatch("\"v1\"");
+		options.setUnconditional(true);
+		assertEquals(Status.OK, webClient.saveToFile(mockUrl, options, localFilePath).status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+	}
+
+	@Test
+	void testSaveToFile_NoValidator() throws Exception {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Hello world!")));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.deleteIfExists(localFilePath);
+		var options = new RequestOptions();
+
+		assertThrows(WebClientException.class, () -> webClient.saveToFile(mockUrl, options, localFilePath));
+	}
+
+	private Path createPartialFile() throws IOException {
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+
+		var partialPath = FileResponseHandler.getPartialPath(mockUrl, localFilePath);
+		Files.writeString(partialPath, "Hello ");
+		Files.writeString(FileResponseHandler.getValidatorPath(partialPath), "\"v1\"");
+		return localFilePath;
+	}
+
+	private void stubFullContent() {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Hello world!")
+				.withHeader(HttpHeaders.LAST_MODIFIED, DateUtils.formatStandardDate(Instant.now()))
+				.withHeader(HttpHeaders.ETAG, "\"v2\"")));
+	}
+
+	@Test
+	void testSaveToFile_Resume() throws Exception {
+		stubFullContent();
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=6-"))
+				.willReturn(aResponse().withStatus(206).withBody("world!")
+						.withHeader(HttpHeaders.CONTENT_RANGE, "bytes 6-11/12")
+						.withHeader(HttpHeaders.LAST_MODIFIED, DateUtils.formatStandardDate(Instant.now()))));
+
+		var localFilePath = createPartialFile();
+		var partialPath = FileResponseHandler.getPartialPath(mockUrl, localFilePath);
+
+		var result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		assertEquals(CONTENT_SHA256, result.sha256());
+		assertFalse(Files.exists(partialPath));
+		assertFalse(Files.exists(FileResponseHandler.getValidatorPath(partialPath)));
+		wireMockExt.verify(getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.IF_RANGE, equalTo("\"v1\"")));
+	}
+
+	@Test
+	void testSaveToFile_Checksum() throws Exception {
+		stubFullContent();
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+		var options = new RequestOptions();
+		options.setChecksum(CONTENT_SHA256.toUpperCase(Locale.ROOT));
+
+		var result = webClient.saveToFile(mockUrl, options, localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals(CONTENT_SHA256, result.sha256());
+		assertTrue(Files.exists(localFilePath));
+	}
+
+	@Test
+	void testSaveToFile_ChecksumMismatch() throws Exception {
+		stubFullContent();
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+		var partialPath = FileResponseHandler.getPartialPath(mockUrl, localFilePath);
+		var options = new RequestOptions();
+		options.setChecksum("0".repeat(64));
+
+		var exception = assertThrows(WebClientException.class, () -> webClient.saveToFile(mockUrl, options, localFilePath));
+		assertTrue(exception.getMessage().contains(CONTENT_SHA256));
+		// Rejected content is neither used nor resumed
+		assertFalse(Files.exists(localFilePath));
+		assertFalse(Files.exists(partialPath));
+		assertFalse(Files.exists(FileResponseHandler.getValidatorPath(partialPath)));
+	}
+
+	private static ContentStore createContentStore() {
+		return createContentStore(new AtomicReference<>());
+	}
+
+	/**
+	 * @param threadName set to the name of the thread that copies the content
+	 */
+	private static ContentStore createContentStore(AtomicReference<String> threadName) {
+		return new ContentStore() {
+
+			@Override
+			public boolean contains(String sha256) {
+				return CONTENT_SHA256.equals(sha256);
+			}
+
+			@Override
+			public boolean copyTo(String sha256, Path path) throws IOException {
+				if (!contains(sha256)) {
+					return false;
+				}
+				threadName.set(Thread.currentThread().getName());
+				Files.writeString(path, "Hello world!");
+				return true;
+			}
+
+		};
+	}
+
+	private static String getReprDigest() {
+		return "sha-256=:" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(CONTENT_SHA256)) + ":";
+	}
+
+	@Test
+	void testSaveToFile_ContentStored() throws Exception {
+		// Body differs from the stored content to show that it is not used
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Other body")
+				.withHeader(HttpHeaders.ETAG, "\"v1\"").withHeader(HttpHeaders.CONTENT_ENCODING, "identity")
+				.withHeader(HttpUtils.REPR_DIGEST, getReprDigest())));
+
+		// Partial file of an earlier transfer is not resumed
+		var localFilePath = createPartialFile();
+		var partialPath = FileResponseHandler.getPartialPath(mockUrl, localFilePath);
+		var threadName = new AtomicReference<String>();
+		webClient.setContentStore(createContentStore(threadName));
+
+		var result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		// File is completed outside the I/O threads of the HTTP client
+		assertTrue(threadName.get().startsWith("file"));
+		assertEquals("\"v1\"", result.etag());
+		assertEquals(CONTENT_SHA256, result.sha256());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		assertFalse(Files.exists(partialPath));
+		assertFalse(Files.exists(FileResponseHandler.getValidatorPath(partialPath)));
+		assertFalse(Files.exists(FileResponseHandler.getStoredCopyPath(mockUrl, localFilePath)));
+	}
+
+	@Test
+	void testSaveToFile_ContentStoredRejected() throws Exception {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Other body")
+				.withHeader(HttpHeaders.ETAG, "\"v1\"").withHeader(HttpHeaders.CONTENT_ENCODING, "identity")
+				.withHeader(HttpUtils.REPR_DIGEST, getReprDigest())));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.writeString(localFilePath, "Hello world!".repeat(10));
+		webClient.setContentStore(createContentStore());
+		var options = new RequestOptions();
+		options.setUnconditional(true);
+
+		assertThrows(WebClientException.class, () -> webClient.saveToFile(mockUrl, options, localFilePath));
+
+		// Copy of the stored content is not left behind
+		assertEquals("Hello world!".repeat(10), Files.readString(localFilePath));
+		assertFalse(Files.exists(FileResponseHandler.getStoredCopyPath(mockUrl, localFilePath)));
+		Files.delete(localFilePath);
+	}
+
+	@Test
+	void testSaveToFile_ErrorPage() throws Exception {
+		var urlPath = "/dir1/file1.zip";
+		wireMockExt.stubFor(get(urlPathEqualTo(urlPath)).willReturn(ok("<!DOCTYPE html><html><body>Error</body></html>")
+				.withHeader(HttpHeaders.ETAG, "\"v1\"")));
+
+		var uri = mockUrl.resolve(urlPath);
+		var localFilePath = outDir.resolve(FileUtils.getFileName(uri));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+		var options = new RequestOptions();
+
+		var exception = assertThrows(WebClientException.class, () -> webClient.saveToFile(uri, options, localFilePath));
+		assertTrue(exception.getMessage().contains("web page"));
+		assertFalse(Files.exists(localFilePath));
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(uri, localFilePath)));
+
+		// Validation turned off
+		options.setContentValidation(false);
+		var result = webClient.saveToFile(uri, options, localFilePath);
+		assertEquals(Status.OK, result.status());
+		Files.delete(localFilePath);
+	}
+
+	@Test
+	void testSaveToFile_ResumeNotSatisfiable() throws Exception {
+		stubFullContent();
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=6-"))
+				.willReturn(aResponse().withStatus(416)));
+
+		var localFilePath = createPartialFile();
+
+		var result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+	}
+
+	@Test
+	void testSaveToFile_ResumeIgnored() throws Exception {
+		stubFullContent();
+
+		var localFilePath = createPartialFile();
+
+		var result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+	}
+
+	@Test
+	void testSaveToFile_ResumeIgnoredWithLength() throws Exception {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok("Hello world!")
+				.withHeader(HttpHeaders.CONTENT_LENGTH, "12")
+				.withHeader(HttpHeaders.LAST_MODIFIED, DateUtils.formatStandardDate(Instant.now()))
+				.withHeader(HttpHeaders.ETAG, "\"v2\"")));
+
+		var localFilePath = createPartialFile();
+		var partialPath = FileResponseHandler.getPartialPath(mockUrl, localFilePath);
+
+		var result = webClient.saveToFile(mockUrl, new RequestOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		assertEquals(CONTENT_SHA256, result.sha256());
+		assertFalse(Files.exists(partialPath));
+	}
+
+	private void stubHead(boolean acceptRanges) {
+		var response = ok().withHeader(HttpHeaders.CONTENT_LENGTH, "12")
+				.withHeader(HttpHeaders.LAST_MODIFIED, DateUtils.formatStandardDate(Instant.now()))
+				.withHeader(HttpHeaders.ETAG, "\"v2\"");
+		if (acceptRanges) {
+			response = response.withHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		}
+		wireMockExt.stubFor(head(urlPathEqualTo(MOCK_URL_PATH)).willReturn(response));
+	}
+
+	private void stubSegment(String range, String body) {
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=" + range))
+				.willReturn(aResponse().withStatus(206).withBody(body)
+						.withHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range + "/12")));
+	}
+
+	private static RequestOptions segmentedOptions() {
+		var options = new RequestOptions();
+		options.setSegmentCount(3);
+		options.setSegmentThreshold(1);
+		return options;
+	}
+
+	@Test
+	void testSaveToFile_Segmented() throws Exception {
+		stubHead(true);
+		stubSegment("0-3", "Hell");
+		stubSegment("4-7", "o wo");
+		stubSegment("8-11", "rld!");
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+
+		var result = webClient.saveToFile(mockUrl, segmentedOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		assertEquals(CONTENT_SHA256, result.sha256());
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(mockUrl, localFilePath)));
+		wireMockExt.verify(3, getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.IF_RANGE, equalTo("\"v2\"")));
+		// Each segment is written at once and its buffer returned to the pool
+		var writeStats = webClient.getWriteStats();
+		assertEquals(12, writeStats.byteCount());
+		assertEquals(3, writeStats.writeCount());
+		assertEquals(0, writeStats.inUseCount());
+	}
+
+	@Test
+	void testSaveToFile_SegmentedContentStored() throws Exception {
+		wireMockExt.stubFor(head(urlPathEqualTo(MOCK_URL_PATH)).willReturn(ok().withHeader(HttpHeaders.CONTENT_LENGTH, "12")
+				.withHeader(HttpHeaders.ACCEPT_RANGES, "bytes").withHeader(HttpHeaders.ETAG, "\"v2\"")
+				.withHeader(HttpUtils.REPR_DIGEST, getReprDigest())));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+		webClient.setContentStore(createContentStore());
+
+		var result = webClient.saveToFile(mockUrl, segmentedOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals(CONTENT_SHA256, result.sha256());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		wireMockExt.verify(0, getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)));
+	}
+
+	@Test
+	void testSaveToFile_SegmentedChecksumMismatch() throws Exception {
+		stubHead(true);
+		stubSegment("0-3", "Hell");
+		stubSegment("4-7", "o wo");
+		stubSegment("8-11", "rld?");
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+		var options = segmentedOptions();
+		options.setChecksum(CONTENT_SHA256);
+
+		assertThrows(WebClientException.class, () -> webClient.saveToFile(mockUrl, options, localFilePath));
+		assertFalse(Files.exists(localFilePath));
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(mockUrl, localFilePath)));
+	}
+
+	@Test
+	void testSaveToFile_SegmentFailure() throws Exception {
+		stubHead(true);
+		stubSegment("0-3", "Hell");
+		stubSegment("4-7", "o wo");
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11"))
+				.willReturn(notFound()));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.deleteIfExists(localFilePath);
+		var options = segmentedOptions();
+
+		assertThrows(WebClientException.class, () -> webClient.saveToFile(mockUrl, options, localFilePath));
+		assertFalse(Files.exists(localFilePath));
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(mockUrl, localFilePath)));
+	}
+
+	@Test
+	void testSaveToFile_SegmentFailureInFlight() throws Exception {
+		stubHead(true);
+		for (var range : new String[] { "0-3", "4-7" }) {
+			wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=" + range))
+					.willReturn(aResponse().withStatus(206).withBody("Hell").withFixedDelay(500)
+							.withHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range + "/12")));
+		}
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11"))
+				.willReturn(notFound()));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.deleteIfExists(localFilePath);
+		var options = segmentedOptions();
+
+		// Partial file is deleted once the cancelled segments have released it
+		assertThrows(WebClientException.class, () -> webClient.saveToFile(mockUrl, options, localFilePath));
+		assertFalse(Files.exists(localFilePath));
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(mockUrl, localFilePath)));
+	}
+
+	@Test
+	void testSaveToFile_SegmentRangeIgnored() throws Exception {
+		stubHead(true);
+		stubFullContent();
+		stubSegment("0-3", "Hell");
+		stubSegment("4-7", "o wo");
+		// Server ignores the range of one segment and returns the whole file
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11"))
+				.willReturn(ok("Hello world!")));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+
+		var result = webClient.saveToFile(mockUrl, segmentedOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		assertFalse(Files.exists(FileResponseHandler.getPartialPath(mockUrl, localFilePath)));
+		// File is downloaded in one piece instead of retrying the segment
+		wireMockExt.verify(1, getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11")));
+		wireMockExt.verify(1, getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)).withoutHeader(HttpHeaders.RANGE));
+	}
+
+	@Test
+	void testSaveToFile_SegmentRetried() throws Exception {
+		stubHead(true);
+		stubSegment("0-3", "Hell");
+		stubSegment("4-7", "o wo");
+		// Transfer of one segment fails once
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11"))
+				.inScenario("retry").whenScenarioStateIs(Scenario.STARTED).willSetStateTo("failed")
+				.willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11"))
+				.inScenario("retry").whenScenarioStateIs("failed")
+				.willReturn(aResponse().withStatus(206).withBody("rld!").withHeader(HttpHeaders.CONTENT_RANGE, "bytes 8-11/12")));
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+
+		var result = webClient.saveToFile(mockUrl, segmentedOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+		// Other segments are not requested again
+		wireMockExt.verify(1, getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=0-3")));
+		wireMockExt.verify(2, getRequestedFor(urlPathEqualTo(MOCK_URL_PATH)).withHeader(HttpHeaders.RANGE, equalTo("bytes=8-11")));
+	}
+
+	@Test
+	void testSaveToFile_SegmentedNotSupported() throws Exception {
+		stubHead(false);
+		stubFullContent();
+
+		var localFilePath = outDir.resolve(FileUtils.getFileName(mockUrl));
+		Files.createDirectories(outDir);
+		Files.deleteIfExists(localFilePath);
+
+		var result = webClient.saveToFile(mockUrl, segmentedOptions(), localFilePath);
+
+		assertEquals(Status.OK, result.status());
+		assertEquals("Hello world!", Files.readString(localFilePath));
+	}
+
 	@Test
 	void testSaveToFile_Failure() throws IOException {
 		wireMockExt.stubFor(get(urlPathEqualTo(MOCK_URL_PATH)).willReturn(notFound()));
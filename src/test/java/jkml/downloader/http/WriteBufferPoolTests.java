@@ -0,0 +1,57 @@
+package jkml.downloader.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.util.PropertiesHelper;
+
+class WriteBufferPoolTests {
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	@Test
+	void testConstructor_invalid() {
+		assertThrows(IllegalArgumentException.class, () -> new WriteBufferPool(BUFFER_SIZE - 1, 0));
+		assertThrows(IllegalArgumentException.class, () -> new WriteBufferPool(4 * BUFFER_SIZE + 1, 0));
+		assertThrows(IllegalArgumentException.class, () -> new WriteBufferPool(BUFFER_SIZE, -1));
+	}
+
+	@Test
+	void testCreate() {
+		var stats = WriteBufferPool.create(PropertiesHelper.create("http.properties")).getStats();
+
+		assertEquals(BUFFER_SIZE, stats.bufferSize());
+		assertEquals(64, stats.maxCount());
+	}
+
+	@Test
+	void testAcquire() {
+		var pool = new WriteBufferPool(BUFFER_SIZE, 2L * BUFFER_SIZE + 1);
+
+		var buffer1 = pool.acquire();
+		var buffer2 = pool.acquire();
+		assertNotNull(buffer1);
+		assertTrue(buffer1.isDirect());
+		assertEquals(BUFFER_SIZE, buffer1.capacity());
+		// Memory cap is reached
+		assertNull(pool.acquire());
+		assertEquals(new WriteStats(0, 0, BUFFER_SIZE, 2, 2, 2), pool.getStats());
+
+		buffer1.put((byte) 1);
+		pool.release(buffer1);
+		var buffer3 = pool.acquire();
+		assertSame(buffer1, buffer3);
+		assertEquals(0, buffer3.position());
+
+		pool.release(buffer2);
+		pool.release(buffer3);
+		assertEquals(new WriteStats(0, 0, BUFFER_SIZE, 2, 0, 2), pool.getStats());
+	}
+
+}
@@ -1,6 +1,8 @@
 package jkml.downloader.profile;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.nio.file.Path;
 import java.time.Instant;
@@ -10,6 +12,8 @@ import org.junit.jupiter.api.Test;
 
 import com.google.gson.JsonPrimitive;
 
+import jkml.downloader.http.RequestOptions;
+
 class GsonUtilsTests {
 
 	@Test
@@ -36,4 +40,33 @@ class GsonUtilsTests {
 		assertEquals("\"" + source + "\"", adapter.toJsonTree(object).toString());
 	}
 
+	@Test
+	void testRequestOptions() {
+		var json = """
+				{
+				  "segmentCount": 4,
+				  "authorization": "Bearer token",
+				  "ifModifiedSince": "2024-01-01T00:00:00Z",
+				  "ifNoneMatch": "\\"etag\\"",
+				  "unconditional": true,
+				  "rangeStart": 100,
+				  "rangeEnd": 200,
+				  "ifRange": "\\"etag\\"",
+				  "checksum": "0123"
+				}
+				""";
+		var options = GsonUtils.createGson().fromJson(json, RequestOptions.class);
+
+		// State of a single request is not read from profiles
+		assertEquals(4, options.getSegmentCount());
+		assertNull(options.getAuthorization());
+		assertNull(options.getIfModifiedSince());
+		assertNull(options.getIfNoneMatch());
+		assertFalse(options.isUnconditional());
+		assertEquals(0, options.getRangeStart());
+		assertEquals(0, options.getRangeEnd());
+		assertNull(options.getIfRange());
+		assertNull(options.getChecksum());
+	}
+
 }
@@ -0,0 +1,63 @@
+package jkml.downloader.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.util.TestUtils;
+
+class PatternCacheTests {
+
+	@Test
+	void testGet() {
+		var cache = new PatternCache(2);
+		var pattern = cache.get("a+");
+		assertSame(pattern, cache.get("a+"));
+		assertEquals(new PatternCache.Stats(1, 1, 0, 1), cache.getStats());
+
+		assertThrows(PatternSyntaxException.class, () -> cache.get("(a"));
+		assertThrows(IllegalArgumentException.class, () -> new PatternCache(0));
+	}
+
+	@Test
+	void testGet_eviction() {
+		var cache = new PatternCache(2);
+		var patternA = cache.get("a");
+		var patternB = cache.get("b");
+		// Least recently used pattern is evicted
+		assertSame(patternA, cache.get("a"));
+		cache.get("c");
+		assertSame(patternA, cache.get("a"));
+		assertNotSame(patternB, cache.get("b"));
+		assertEquals(new PatternCache.Stats(2, 4, 2, 2), cache.getStats());
+	}
+
+	@Test
+	void testProfileManager() throws IOException {
+		var path = TestUtils.outputDirectory().resolve("profiles-pattern-cache.json");
+		var profile = """
+				{ "name": "%s", "pageUrl": "https://localhost/", "linkPattern": "href=\\"([^\\"]+\\\\.msi)\\"", \
+				"outputDirectory": "out" }""";
+		Files.writeString(path, "[" + profile.formatted("a") + "," + profile.formatted("b") + "]");
+
+		var cache = new PatternCache();
+		var manager = new ProfileManager(cache);
+		var profiles = manager.load(path);
+		assertSame(profiles.get(0).getLinkPattern(), profiles.get(1).getLinkPattern());
+		assertEquals(new PatternCache.Stats(1, 1, 0, 1), cache.getStats());
+
+		// Reloaded profiles, unchanged or not, use the cached pattern
+		Files.writeString(path, "[" + profile.formatted("a") + "," + profile.formatted("c") + "]");
+		var changes = manager.reload(path);
+		assertSame(profiles.get(0).getLinkPattern(), changes.added().get(0).getLinkPattern());
+		assertEquals(new PatternCache.Stats(3, 1, 0, 1), cache.getStats());
+	}
+
+}
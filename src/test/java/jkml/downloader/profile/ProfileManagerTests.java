@@ -1,12 +1,21 @@
 package jkml.downloader.profile;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -90,6 +99,56 @@ class ProfileManagerTests {
 		testValidate(profile, 2);
 	}
 
+	@Test
+	void testValidate_checkInterval() {
+		var profile = createProfile();
+		profile.setCheckInterval(Duration.ofDays(1));
+		testValidate(profile, 0);
+
+		profile.setCheckInterval(Duration.ZERO);
+		testValidate(profile, 1);
+	}
+
+	@Test
+	void testValidate_invalidPattern() throws IOException {
+		var path = TestUtils.outputDirectory().resolve("profiles-invalid-pattern.json");
+		Files.writeString(path, """
+				[ { "name": "a", "pageUrl": "https://localhost/", "linkPattern": "href=\\"(.+", "outputDirectory": "out" } ]""");
+		var profile = new ProfileManager().load(path).get(0);
+
+		// Pattern is not compiled by validation, only on first use
+		testValidate(profile, 0);
+		assertEquals("href=\"(.+", profile.getLinkRegex());
+		assertThrows(PatternSyntaxException.class, profile::getLinkPattern);
+	}
+
+	@Test
+	void testValidate_checksum() {
+		var profile = createProfile();
+		profile.setChecksum("c0535e4be2b79ffd93291305436bf889314e4a3faec05ecffcbb7df31ad9e51a");
+		profile.setChecksumPattern(Pattern.compile("SHA-256: (\\w+)"));
+		testValidate(profile, 0);
+
+		profile.setChecksum("abc");
+		testValidate(profile, 1);
+
+		profile.setPageUrl(null);
+		testValidate(profile, 3);
+
+		profile.setChecksumUrl(URI.create("https://localhost/file.zip.sha256"));
+		testValidate(profile, 2);
+	}
+
+	@Test
+	void testValidate_nestedQuantifiers() {
+		var profile = createProfile();
+		profile.setLinkPattern(Pattern.compile("href=\"((\\w+/?)+\\.zip)"));
+		testValidate(profile, 1);
+
+		profile.setVersionPattern(Pattern.compile("v((\\d+)*)"));
+		testValidate(profile, 2);
+	}
+
 	@Test
 	void testLoad() throws IOException {
 		var path = inDir.resolve("profiles.json");
@@ -97,6 +156,18 @@ class ProfileManagerTests {
 		assertEquals(5, manager.load(path).size());
 	}
 
+	@Test
+	void testLoad_consumer() throws IOException {
+		var path = inDir.resolve("profiles.json");
+		var profiles = new ArrayList<Profile>();
+		assertEquals(5, new ProfileManager().load(path, profiles::add));
+		assertEquals(5, profiles.size());
+
+		// Repeated pattern is compiled once
+		assertEquals(profiles.get(2).getLinkPattern().pattern(), profiles.get(4).getLinkPattern().pattern());
+		assertSame(profiles.get(2).getLinkPattern(), profiles.get(4).getLinkPattern());
+	}
+
 	@Test
 	void testLoad_exception() {
 		var path = inDir.resolve("profiles-null.json");
@@ -104,4 +175,121 @@ class ProfileManagerTests {
 		assertThrows(JsonParseException.class, () -> manager.load(path));
 	}
 
+	private static String profileJson(String name, String fileUrl) {
+		return """
+				{ "name": "%s", "fileUrl": "%s", "outputDirectory": "target/test-classes/testOutput" }\
+				""".formatted(name, fileUrl);
+	}
+
+	private static void writeProfiles(Path path, String... profiles) throws IOException {
+		Files.writeString(path, "[" + String.join(",", profiles) + "]");
+	}
+
+	@Test
+	void testReload() throws IOException {
+		var path = TestUtils.outputDirectory().resolve("profiles-reload.json");
+		writeProfiles(path, profileJson("a", "https://localhost/a.zip"), profileJson("b", "https://localhost/b.zip"),
+				profileJson("c", "https://localhost/c.zip"));
+		var manager = new ProfileManager();
+		assertEquals(3, manager.load(path).size());
+
+		writeProfiles(path, profileJson("d", "https://localhost/d.zip"), profileJson("c", "https://localhost/c-2.zip"),
+				profileJson("a", "https://localhost/a.zip"));
+		var changes = manager.reload(path);
+		assertEquals(1, changes.added().size());
+		assertEquals("d", changes.added().get(0).getName());
+		assertSame(Type.DIRECT, changes.added().get(0).getType());
+		assertEquals(1, changes.changed().size());
+		assertEquals(URI.create("https://localhost/c-2.zip"), changes.changed().get(0).getFileUrl());
+		assertEquals(List.of("b"), changes.removed());
+
+		assertTrue(manager.reload(path).isEmpty());
+	}
+
+	@Test
+	void testReload_reformatted() throws IOException {
+		var path = TestUtils.outputDirectory().resolve("profiles-reformatted.json");
+		writeProfiles(path, profileJson("a", "https://localhost/a.zip"));
+		var manager = new ProfileManager();
+		manager.load(path);
+
+		// Profile with the same content is unchanged whatever its layout
+		writeProfiles(path, """
+				{
+					"outputDirectory": "target/test-classes/testOutput",
+					"fileUrl": "https://localhost/a.zip",
+					"name": "a"
+				}""");
+		assertTrue(manager.reload(path).isEmpty());
+	}
+
+	@Test
+	void testLoad_duplicateName() throws IOException {
+		var path = TestUtils.outputDirectory().resolve("profiles-duplicate.json");
+		writeProfiles(path, profileJson("a", "https://localhost/a.zip"), profileJson("a", "https://localhost/a-2.zip"),
+				"{ \"fileUrl\": \"https://localhost/b.zip\" }", "{ \"fileUrl\": \"https://localhost/c.zip\" }");
+		var manager = new ProfileManager();
+		var profiles = new ArrayList<Profile>();
+
+		// Later profile with the same name is skipped, profiles without a name are left to validation
+		assertEquals(3, manager.load(path, profiles::add));
+		assertEquals(URI.create("https://localhost/a.zip"), profiles.get(0).getFileUrl());
+		assertEquals(URI.create("https://localhost/b.zip"), profiles.get(1).getFileUrl());
+
+		writeProfiles(path, profileJson("a", "https://localhost/a-2.zip"), profileJson("a", "https://localhost/a.zip"));
+		var changes = manager.reload(path);
+		assertEquals(1, changes.changed().size());
+		assertEquals(URI.create("https://localhost/a-2.zip"), changes.changed().get(0).getFileUrl());
+		assertTrue(changes.added().isEmpty());
+	}
+
+	@Test
+	void testReload_exception() throws IOException {
+		var path = TestUtils.outputDirectory().resolve("profiles-reload-error.json");
+		writeProfiles(path, profileJson("a", "https://localhost/a.zip"));
+		var manager = new ProfileManager();
+		manager.load(path);
+
+		Files.writeString(path, "[ { \"name\": ");
+		assertThrows(JsonParseException.class, () -> manager.reload(path));
+		writeProfiles(path, "1");
+		assertThrows(JsonParseException.class, () -> manager.reload(path));
+
+		// Profiles loaded last are kept after a failure
+		writeProfiles(path, profileJson("a", "https://localhost/a.zip"));
+		assertTrue(manager.reload(path).isEmpty());
+	}
+
+	@Test
+	void testWatch() throws Exception {
+		var path = TestUtils.outputDirectory().resolve("profiles-watch.json");
+		writeProfiles(path, profileJson("a", "https://localhost/a.zip"));
+		var manager = new ProfileManager();
+		manager.load(path);
+
+		var future = new CompletableFuture<ProfileManager.Changes>();
+		var thread = Thread.ofPlatform().start(() -> {
+			try {
+				manager.watch(path, future::complete);
+			} catch (IOException e) {
+				future.completeExceptionally(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		try {
+			// Modify the file until the watch service is registered and notices it
+			for (var i = 0; i < 50 && !future.isDone(); ++i) {
+				writeProfiles(path, profileJson("a", "https://localhost/a-2.zip"));
+				Thread.sleep(200);
+			}
+			var changes = future.get(10, TimeUnit.SECONDS);
+			assertEquals(1, changes.changed().size());
+			assertEquals(URI.create("https://localhost/a-2.zip"), changes.changed().get(0).getFileUrl());
+		} finally {
+			thread.interrupt();
+			thread.join(5000);
+		}
+	}
+
 }
@@ -0,0 +1,140 @@
+package jkml.downloader.state;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jkml.downloader.util.TestUtils;
+
+class StateStoreTests {
+
+	private static final Path dataDir = TestUtils.outputDirectory().resolve("state");
+
+	private static final Instant TIME = Instant.parse("2015-10-21T07:28:00Z");
+
+	private static StateStore.Entry createEntry(String name, String version) {
+		return new StateStore.Entry(name, URI.create("https://localhost/file-" + version + ".zip"), version,
+				dataDir.resolve("file-" + version + ".zip"), "\"" + version + "\"", TIME, 12, null, TIME, 0, 0);
+	}
+
+	private static long countLines() throws IOException {
+		try (var lines = Files.lines(dataDir.resolve(StateStore.FILE_NAME))) {
+			return lines.count();
+		}
+	}
+
+	@BeforeEach
+	void beforeEach() throws IOException {
+		TestUtils.deleteDirectories(dataDir);
+	}
+
+	@Test
+	void testPutAndLoad() throws IOException {
+		var entry = createEntry("name1", "1.0");
+		try (var store = new StateStore(dataDir)) {
+			store.put(createEntry("name1", "0.9"));
+			store.put(entry);
+			store.put(createEntry("name2", "2.0"));
+		}
+		assertEquals(3, countLines());
+
+		try (var loaded = new StateStore(dataDir)) {
+			loaded.load();
+			// Last line of a profile wins
+			assertEquals(entry, loaded.get("name1"));
+			assertEquals("2.0", loaded.get("name2").version());
+			assertNull(loaded.get("name3"));
+		}
+	}
+
+	@Test
+	void testLoad_compaction() throws IOException {
+		try (var store = new StateStore(dataDir)) {
+			for (var i = 0; i < 5; ++i) {
+				store.put(createEntry("name1", "1." + i));
+			}
+		}
+
+		try (var loaded = new StateStore(dataDir)) {
+			loaded.load();
+			assertEquals(1, countLines());
+			assertEquals("1.4", loaded.get("name1").version());
+		}
+	}
+
+	@Test
+	void testPut_compaction() throws IOException {
+		try (var store = new StateStore(dataDir)) {
+			store.load();
+			store.put(createEntry("name1", "1.0"));
+			store.put(createEntry("name2", "2.0"));
+			for (var i = 0; i < 100; ++i) {
+				store.put(createEntry("name1", "1." + i));
+			}
+			// File is compacted as lines are appended
+			assertTrue(countLines() <= 4);
+			assertEquals("1.99", store.get("name1").version());
+		}
+
+		try (var loaded = new StateStore(dataDir)) {
+			loaded.load();
+			assertEquals("1.99", loaded.get("name1").version());
+			assertEquals("2.0", loaded.get("name2").version());
+		}
+	}
+
+	@Test
+	void testPut_notLoaded() throws IOException {
+		try (var store = new StateStore(dataDir)) {
+			store.put(createEntry("name1", "1.0"));
+		}
+		try (var store = new StateStore(dataDir)) {
+			for (var i = 0; i < 5; ++i) {
+				store.put(createEntry("name2", "2." + i));
+			}
+		}
+
+		// Lines of profiles not loaded are kept
+		try (var loaded = new StateStore(dataDir)) {
+			loaded.load();
+			assertEquals("1.0", loaded.get("name1").version());
+			assertEquals("2.4", loaded.get("name2").version());
+		}
+	}
+
+	@Test
+	void testLoad_damagedLine() throws IOException {
+		try (var store = new StateStore(dataDir)) {
+			store.put(createEntry("name1", "1.0"));
+			store.put(createEntry("name2", "2.0"));
+		}
+		// Line cut short by an interrupted run
+		Files.writeString(dataDir.resolve(StateStore.FILE_NAME), "{\"name\":\"name1\",\"vers", StandardOpenOption.APPEND);
+
+		try (var loaded = new StateStore(dataDir)) {
+			loaded.load();
+			assertEquals(2, countLines());
+			assertEquals("1.0", loaded.get("name1").version());
+
+			var failed = loaded.get("name1").failed(TIME);
+			assertEquals(1, failed.failureCount());
+			loaded.put(failed);
+		}
+
+		try (var loaded = new StateStore(dataDir)) {
+			loaded.load();
+			assertEquals(1, loaded.get("name1").failureCount());
+		}
+	}
+
+}